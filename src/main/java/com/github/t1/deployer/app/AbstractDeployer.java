@@ -1,9 +1,11 @@
 package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.app.Audit.AuditBuilder;
+import com.github.t1.deployer.app.ConfigProducer.DeployerConfig;
 import com.github.t1.deployer.container.AbstractResource;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.model.Plan.*;
+import com.github.t1.deployer.tools.Metrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,24 +26,27 @@ abstract class AbstractDeployer<
         AUDIT extends AuditBuilder>
         implements Deployer {
     @Inject Audits audits;
-    @Inject @Config("managed.resources") List<String> managedResourceNames;
-    @Inject @Config("pinned.resources") Map<String, List<String>> pinnedResourceNames;
 
-    private List<RESOURCE> remaining;
+    private Set<String> pinned;
+    private Map<String, List<RESOURCE>> existing;
+    private Map<String, List<RESOURCE>> remaining;
 
     /* ------------------------------------------------------------------------------------------------------------ */
-    @Override public void read(PlanBuilder builder) {
-        unpinnedResources().forEach(resource -> read(builder, resource));
+    @Override public void read(PlanBuilder builder, DeployerConfig config) {
+        unpinnedResources(config).forEach(resource -> read(builder, resource));
     }
 
-    private Stream<RESOURCE> unpinnedResources() {
-        return existingResources().filter(resource -> !isPinned(resource.getId()));
+    protected Stream<RESOURCE> unpinnedResources(DeployerConfig config) {
+        Set<String> pinned = pinnedNames(config);
+        return existingResources().filter(resource -> !pinned.contains(resource.getId()));
     }
 
     protected abstract Stream<RESOURCE> existingResources();
 
-    protected boolean isPinned(String name) {
-        return pinnedResourceNames.getOrDefault(getType(), emptyList()).contains(name);
+    protected boolean isPinned(String name) { return pinned.contains(name); }
+
+    private Set<String> pinnedNames(DeployerConfig config) {
+        return new HashSet<>(config.pinnedResources().getOrDefault(getType(), emptyList()));
     }
 
     protected abstract String getType();
@@ -50,15 +55,21 @@ abstract class AbstractDeployer<
 
 
     /* ------------------------------------------------------------------------------------------------------------ */
-    @Override public void apply(Plan plan) {
+    @Override public void apply(Plan plan, DeployerConfig config) {
         if (log.isDebugEnabled())
             log.debug("apply {} -> {}", resourcesIn(plan).collect(toList()), this.getClass().getSimpleName());
-        this.remaining = unpinnedResources().collect(toList());
+        try (Metrics.Timing timing = Metrics.time("deploy." + getType())) {
+            this.pinned = pinnedNames(config);
+            this.existing = existingResources()
+                    .collect(groupingBy(AbstractResource::getId, LinkedHashMap::new, toList()));
+            this.remaining = new LinkedHashMap<>(existing);
+            this.remaining.keySet().removeAll(pinned);
 
-        resourcesIn(plan).forEach(this::apply);
+            resourcesIn(plan).forEach(this::apply);
 
-        if (isManaged())
-            remaining.forEach(this::cleanup);
+            if (isManaged(config))
+                remaining.values().forEach(resources -> resources.forEach(this::cleanup));
+        }
     }
 
     protected abstract Stream<PLAN> resourcesIn(Plan plan);
@@ -67,7 +78,7 @@ abstract class AbstractDeployer<
         if (isPinned(plan.getId()))
             throw badRequest("resource is pinned: " + plan);
 
-        RESOURCE resource = readResource(plan);
+        RESOURCE resource = existingResource(plan);
         log.debug("apply {} to {}", plan, resource);
         AUDIT audit = auditBuilder(resource);
         switch (plan.getState()) {
@@ -98,13 +109,31 @@ abstract class AbstractDeployer<
         throw new UnsupportedOperationException("unhandled case: " + plan.getState());
     }
 
+    /**
+     * Take the resource from the existing resources we have already read, so we don't have to read every single
+     * planned resource from the container. Only if the plan is applied without them, we fall back to reading it.
+     */
+    private RESOURCE existingResource(PLAN plan) {
+        RESOURCE resource = readResource(plan);
+        if (existing == null)
+            return resource;
+        List<RESOURCE> candidates = existing.getOrDefault(resource.getId(), emptyList());
+        Optional<RESOURCE> match = candidates.stream().filter(resource::matchesAddress).findFirst();
+        if (!match.isPresent())
+            match = candidates.stream().filter(resource::isVariantOf).findFirst();
+        if (match.isPresent())
+            return match.get();
+        resource.notFound();
+        return resource;
+    }
+
     protected abstract RESOURCE readResource(PLAN plan);
 
     protected abstract AUDIT auditBuilder(RESOURCE resource);
 
     private void removeFromRemaining(RESOURCE resource) {
-        boolean removed = remaining.removeIf(resource::matchesId);
-        assert removed : "expected [" + resource + "] to be in " + remaining;
+        List<RESOURCE> removed = remaining.remove(resource.getId());
+        assert removed != null : "expected [" + resource + "] to be in " + remaining.keySet();
     }
 
     protected abstract void update(RESOURCE resource, PLAN plan, AUDIT audit);
@@ -123,7 +152,8 @@ abstract class AbstractDeployer<
 
     protected abstract void cleanup(RESOURCE resource);
 
-    public boolean isManaged() {
-        return managedResourceNames.equals(singletonList("all")) || managedResourceNames.contains(getType());
+    private boolean isManaged(DeployerConfig config) {
+        List<String> managed = config.managedResources();
+        return managed.equals(singletonList("all")) || managed.contains(getType());
     }
 }
@@ -3,14 +3,17 @@ package com.github.t1.deployer.app;
 import com.github.t1.deployer.app.Audit.DeployableAudit;
 import com.github.t1.deployer.app.Audit.DeployableAudit.DeployableAuditBuilder;
 import com.github.t1.deployer.app.Audits.Warning;
+import com.github.t1.deployer.app.ConfigProducer.DeployerConfig;
 import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.model.Plan.PlanBuilder;
 import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.tools.*;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
-import java.util.Objects;
+import java.io.InputStream;
+import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -18,6 +21,7 @@ import static com.github.t1.deployer.container.DeploymentResource.*;
 import static com.github.t1.deployer.model.ArtifactType.*;
 import static com.github.t1.deployer.model.DeploymentState.*;
 import static com.github.t1.problem.WebException.*;
+import static java.util.stream.Collectors.*;
 
 @Slf4j
 class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResource, DeployableAuditBuilder> {
@@ -25,6 +29,8 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
 
     @Inject Container container;
     @Inject Repository repository;
+    @Inject Fingerprints fingerprints;
+    @Inject Parallel parallel;
 
 
     @Override protected Stream<DeploymentResource> existingResources() { return container.allDeployments(); }
@@ -51,6 +57,11 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
 
     @Override
     protected void update(DeploymentResource resource, DeployablePlan plan, DeployableAuditBuilder audit) {
+        if (fingerprints.matches(plan, resource.checksum())) {
+            log.debug("{} unchanged since last apply with checksum {}", plan.getName(), resource.checksum());
+            return;
+        }
+
         Artifact old = repository.lookupByChecksum(resource.checksum());
         if (plan.getVersion().matches(CURRENT) && old.getVersion().matches("unknown")) {
             log.warn("skip update of [{}] to CURRENT: unknown checksum", plan.getName());
@@ -62,10 +73,12 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
 
         if (resource.checksum().equals(artifact.getChecksum())) {
             log.debug("{} already deployed with same checksum {}", plan.getName(), resource.checksum());
+            fingerprints.stage(plan, artifact.getChecksum());
             return;
         }
 
-        container.builderFor(toDeploymentName(plan)).inputStream(artifact.getInputStream()).get().redeploy();
+        container.builderFor(toDeploymentName(plan)).inputStream(content(artifact)).get().redeploy();
+        fingerprints.stage(plan, artifact.getChecksum());
         audit.change("checksum", resource.checksum(), artifact.getChecksum());
 
         if (!Objects.equals(old.getGroupId(), artifact.getGroupId()))
@@ -103,7 +116,32 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
              .change("version", null, artifact.getVersion())
              .change("type", null, artifact.getType())
              .change("checksum", null, artifact.getChecksum());
-        return container.builderFor(toDeploymentName(plan)).inputStream(artifact.getInputStream());
+        fingerprints.stage(plan, artifact.getChecksum());
+        return container.builderFor(toDeploymentName(plan)).inputStream(content(artifact));
+    }
+
+    /**
+     * Download the artifact only when the batch is executed, not when it's rolled back, e.g. for a dry run;
+     * and verify the checksum while the container reads the bytes, so a truncated download fails the batch.
+     * Bytes from the {@code ArtifactStore} have already been verified when they were stored, so they pass through.
+     * The management client may read the content in a thread of its own, so the trace has to be propagated.
+     * The time until the content is read completely is recorded with the bytes, no matter if it comes from the
+     * repository or from the store; i.e. also when the store is disabled.
+     */
+    private static InputStream content(Artifact artifact) {
+        return new LazyInputStream(Trace.propagate(() -> {
+            Metrics.Timing timing = Metrics.time("deploy.content").attribute("artifact", artifact);
+            try {
+                Checksum checksum = artifact.getChecksum();
+                InputStream inputStream = (checksum == null || checksum.isEmpty())
+                        ? artifact.getInputStream()
+                        : ChecksumInputStream.verifying(checksum, artifact.getInputStream());
+                return new TimedInputStream(inputStream, timing);
+            } catch (RuntimeException e) {
+                timing.close();
+                throw e;
+            }
+        }));
     }
 
     private Artifact lookupDeployedArtifact(DeployablePlan plan, Artifact old) {
@@ -149,8 +187,23 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
     }
 
 
+    /**
+     * The deployments are read from the container first; the repository lookups are then done in parallel, as
+     * they are slow remote calls. The results are added in the order of the deployments.
+     */
+    @Override public void read(PlanBuilder builder, DeployerConfig config) {
+        List<DeploymentResource> deployments = unpinnedResources(config).collect(toList());
+        List<Checksum> checksums = deployments.stream().map(DeploymentResource::checksum).collect(toList());
+        List<Artifact> artifacts = parallel.map(checksums, repository::lookupByChecksum);
+        for (int i = 0; i < deployments.size(); i++)
+            read(builder, deployments.get(i), artifacts.get(i));
+    }
+
     @Override public void read(PlanBuilder builder, DeploymentResource deployment) {
-        Artifact artifact = repository.lookupByChecksum(deployment.checksum());
+        read(builder, deployment, repository.lookupByChecksum(deployment.checksum()));
+    }
+
+    private void read(PlanBuilder builder, DeploymentResource deployment, Artifact artifact) {
         builder.deployable(DeployablePlan
                 .builder()
                 .name(toDeploymentName(deployment))
@@ -1,15 +1,25 @@
 package com.github.t1.deployer.app;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.github.t1.deployer.app.Audits.Warning;
 import com.github.t1.deployer.model.ProcessState;
+import com.github.t1.deployer.tools.Trace;
 import lombok.Value;
 
 import java.util.List;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
+
 /** see {@link Audits} */
 @Value
 public class AuditsResponse {
     List<Audit> audits;
     List<Warning> warnings;
     ProcessState processState;
+
+    /** only for a dry run: the composite operation that would have been executed */
+    @JsonInclude(NON_NULL) String operation;
+
+    /** only with <code>?trace=true</code>: the spans of the apply, with their durations */
+    @JsonInclude(NON_NULL) Trace.Span trace;
 }
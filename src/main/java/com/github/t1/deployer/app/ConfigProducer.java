@@ -40,6 +40,9 @@ public class ConfigProducer {
             .findAndRegisterModules();
 
     public static final String DEPLOYER_CONFIG_YAML = "deployer.config.yaml";
+    public static final String CHECKSUM_CACHE_FILE = "deployer.checksum.cache";
+    public static final String ARTIFACT_STORE_DIR = "deployer.artifacts";
+    public static final String FINGERPRINTS_FILE = "deployer.fingerprints";
 
     private static final DeployerConfig DEFAULT_CONFIG = DeployerConfig
             .builder()
@@ -50,7 +53,7 @@ public class ConfigProducer {
     @Builder
     @NoArgsConstructor(access = PRIVATE, force = true)
     @AllArgsConstructor(access = PRIVATE)
-    private static class DeployerConfig {
+    static class DeployerConfig {
         private final RepositoryConfig repository;
         @JsonProperty("root-bundle") private final RootBundleConfig rootBundle;
         @JsonProperty("key-store") private final KeyStoreConfig keyStore;
@@ -58,6 +61,15 @@ public class ConfigProducer {
         @Singular @JsonProperty("manage") private final List<String> managedResourceNames;
         @Singular("pin") @JsonProperty("pin") private final Map<String, List<String>> pinned;
         private final EnumSet<Trigger> triggers = EnumSet.allOf(Trigger.class);
+        private final Age fileChangeQuietWindow;
+        private final Integer deploymentChunkSize;
+
+        /** there is no (valid) config file */
+        boolean isDefault() { return this == DEFAULT_CONFIG; }
+
+        List<String> managedResources() { return nvl(managedResourceNames, emptyList()); }
+
+        Map<String, List<String>> pinnedResources() { return nvl(pinned, emptyMap()); }
 
         @Override public String toString() { return toYAML(); }
 
@@ -65,20 +77,27 @@ public class ConfigProducer {
     }
 
 
-    private DeployerConfig config = DEFAULT_CONFIG;
+    /**
+     * The current config is an immutable snapshot that is replaced as a whole when the file changes, so every
+     * injection sees a consistent config, and beans that were already injected keep theirs, e.g. during an apply.
+     */
+    private volatile DeployerConfig config = DEFAULT_CONFIG;
 
     @Inject Container container;
 
+    /** the current config as one consistent snapshot, for beans that outlive a config reload */
+    DeployerConfig getConfig() { return config; }
+
+    public Path getConfigFile() { return Container.getConfigDir().resolve(DEPLOYER_CONFIG_YAML); }
+
     @PostConstruct
     public void initConfig() {
-        Path path = Container.getConfigDir().resolve(DEPLOYER_CONFIG_YAML);
+        Path path = getConfigFile();
         if (Files.isRegularFile(path)) {
             log.info("load deployer config from '" + path + "'");
-            try (Reader reader = Files.newBufferedReader(path)) {
-                DeployerConfig newConfig = YAML.readValue(reader, DeployerConfig.class);
-                if (newConfig != null)
-                    this.config = newConfig;
-            } catch (IOException e) {
+            try {
+                this.config = load(path);
+            } catch (IOException | RuntimeException e) {
                 log.error("can't load config from '" + path + "'.\n"
                         + "--------- CONTINUE WITH DEFAULT CONFIG! ---------", e);
             }
@@ -87,6 +106,27 @@ public class ConfigProducer {
         }
     }
 
+    /** Load the config file again; if it's not valid, keep the current config. */
+    public void reload() {
+        Path path = getConfigFile();
+        try {
+            DeployerConfig newConfig = Files.isRegularFile(path) ? load(path) : DEFAULT_CONFIG;
+            if (!newConfig.equals(this.config)) {
+                log.info("reloaded deployer config from '" + path + "'");
+                this.config = newConfig;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("can't reload config from '" + path + "'; continue with the current config", e);
+        }
+    }
+
+    private static DeployerConfig load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            DeployerConfig newConfig = YAML.readValue(reader, DeployerConfig.class);
+            return (newConfig == null) ? DEFAULT_CONFIG : newConfig;
+        }
+    }
+
 
     private RepositoryConfig getRepository() { return nvl(config.getRepository(), DEFAULT_CONFIG.getRepository()); }
 
@@ -114,19 +154,41 @@ public class ConfigProducer {
     @Produces @Config("repository.releases")
     public String repositoryReleases() { return getRepository().getRepositoryReleases(); }
 
+    @Produces @Config("repository.checksum-cache-size")
+    public Integer repositoryChecksumCacheSize() { return getRepository().getChecksumCacheSize(); }
+
+    @Produces @Config("repository.unknown-checksum-ttl")
+    public Age repositoryUnknownChecksumTtl() { return getRepository().getUnknownChecksumTtl(); }
+
+    @Produces @Config("repository.checksum-cache-file")
+    public Path repositoryChecksumCacheFile() { return Container.getConfigDir().resolve(CHECKSUM_CACHE_FILE); }
+
+    @Produces @Config("repository.artifact-store-size")
+    public Long repositoryArtifactStoreSize() { return getRepository().getArtifactStoreSize(); }
 
-    @Produces @Config("managed.resources")
-    public List<String> managedResources() { return nvl(config.getManagedResourceNames(), emptyList()); }
+    @Produces @Config("repository.artifact-store-dir")
+    public Path repositoryArtifactStoreDir() { return Container.getDataDir().resolve(ARTIFACT_STORE_DIR); }
+
+    @Produces @Config("repository.version-index-ttl")
+    public Age repositoryVersionIndexTtl() { return getRepository().getVersionIndexTtl(); }
+
+
+    @Produces @Config("fingerprints-file")
+    public Path fingerprintsFile() { return Container.getConfigDir().resolve(FINGERPRINTS_FILE); }
 
-    @Produces @Config("pinned.resources")
-    public Map<String, List<String>> pinned() { return nvl(config.getPinned(), emptyMap()); }
 
     @Produces @Config("triggers")
     public Set<Trigger> triggers() { return config.getTriggers(); }
 
+    @Produces @Config("file-change.quiet-window")
+    public Age fileChangeQuietWindow() { return config.getFileChangeQuietWindow(); }
+
+    @Produces @Config("deployment-chunk-size")
+    public Integer deploymentChunkSize() { return config.getDeploymentChunkSize(); }
+
 
     @Produces @Config("variables")
     public Map<VariableName, String> variables() { return config.getVariables(); }
 
-    @Produces @Config("use.default.config") public boolean useDefaultConfig() { return config == DEFAULT_CONFIG; }
+    @Produces @Config("use.default.config") public boolean useDefaultConfig() { return config.isDefault(); }
 }
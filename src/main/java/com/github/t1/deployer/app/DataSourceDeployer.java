@@ -60,6 +60,10 @@ class DataSourceDeployer extends
         return DataSourceAudit.builder().name(resource.name());
     }
 
+    @Override protected DataSourceResource readResource(DataSourcePlan plan) {
+        return resourceBuilder(plan).xa(plan.getXa()).get();
+    }
+
     @Override protected DataSourceResourceBuilder resourceBuilder(DataSourcePlan plan) {
         return container.builderFor(plan.getName());
     }
@@ -1,11 +1,15 @@
 package com.github.t1.deployer.app;
 
+import com.github.t1.deployer.app.ConfigProducer.DeployerConfig;
 import com.github.t1.deployer.model.Plan;
 import com.github.t1.deployer.model.Plan.PlanBuilder;
 
-/** No-generics interface of {@link AbstractDeployer}, so injection works. */
+/**
+ * No-generics interface of {@link AbstractDeployer}, so injection works. The config is passed in, so the managed and
+ * pinned resources come from the same snapshot as the rest of the execution, even when the config is reloaded.
+ */
 interface Deployer {
-    void read(PlanBuilder builder);
+    void read(PlanBuilder builder, DeployerConfig config);
 
-    void apply(Plan plan);
+    void apply(Plan plan, DeployerConfig config);
 }
@@ -3,16 +3,18 @@ package com.github.t1.deployer.app;
 import com.github.t1.deployer.container.Container;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.model.Expressions.*;
+import com.github.t1.deployer.app.ConfigProducer.DeployerConfig;
 import com.github.t1.deployer.model.Plan.PlanBuilder;
-import com.github.t1.deployer.repository.Repository;
-import com.github.t1.deployer.tools.KeyStoreConfig;
+import com.github.t1.deployer.repository.*;
+import com.github.t1.deployer.tools.*;
 import com.github.t1.log.Logged;
 import com.github.t1.problem.*;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.ejb.*;
 import javax.enterprise.inject.Instance;
-import javax.inject.Inject;
+import javax.inject.*;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import java.io.*;
@@ -54,25 +56,41 @@ public class DeployerBoundary {
 
     @GET
     public Plan getEffectivePlan() {
+        DeployerConfig config = configProducer.getConfig();
         PlanBuilder builder = Plan.builder();
-        deployers.forEach(deployer -> deployer.read(builder));
+        deployers.forEach(deployer -> deployer.read(builder, config));
         return builder.build();
     }
 
 
     @POST
-    public AuditsResponse post(Map<String, String> form) {
+    public AuditsResponse post(
+            @QueryParam("dry-run") boolean dryRun,
+            @QueryParam("trace") boolean trace,
+            Map<String, String> form) {
+        try (Trace.Span span = trace ? Trace.start("post") : Trace.NONE) {
+            if (dryRun) {
+                String operation = dryRun(mapVariableNames(form));
+                return new AuditsResponse(audits.getAudits(), audits.getWarnings(), null, operation, traced(span));
+            }
 
-        apply(post, mapVariableNames(form));
+            apply(post, mapVariableNames(form));
 
-        if (reloadRequired()) {
-            container.suspend();
-            container.reload();
-        }
+            if (reloadRequired()) {
+                try (Trace.Span reload = Trace.span("reload")) {
+                    container.suspend();
+                    container.reload();
+                }
+            }
 
-        return new AuditsResponse(audits.getAudits(), audits.getWarnings(), audits.getProcessState());
+            return new AuditsResponse(audits.getAudits(), audits.getWarnings(), audits.getProcessState(), null,
+                    traced(span));
+        }
     }
 
+    /** the span is closed before the response is serialized, so the duration of the root span is complete */
+    private static Trace.Span traced(Trace.Span span) { return (span == Trace.NONE) ? null : span; }
+
     private boolean reloadRequired() {
         return audits.getProcessState() != running && !Boolean.getBoolean(IGNORE_SERVER_RELOAD);
     }
@@ -90,7 +108,7 @@ public class DeployerBoundary {
     public List<Version> getVersions(
             @QueryParam("groupId") @NotNull GroupId groupId,
             @QueryParam("artifactId") @NotNull ArtifactId artifactId) {
-        return repository.listVersions(groupId, artifactId, false);
+        return repositoryProvider.get().listVersions(groupId, artifactId, false);
     }
 
     @GET
@@ -101,13 +119,15 @@ public class DeployerBoundary {
     }
 
     private String readPlan() {
-        Reader reader = hasRootBundleConfigFile() ? reader(getRootBundlePath()) : rootBundleReader();
+        Reader reader = hasRootBundleConfigFile()
+                ? reader(getRootBundlePath())
+                : rootBundleReader(configProducer.getConfig());
         return new Scanner(reader).useDelimiter("\\A").next();
     }
 
-    private Reader rootBundleReader() {
+    private Reader rootBundleReader(DeployerConfig config) {
         AtomicBoolean hasUnresolvedVariables = new AtomicBoolean(false);
-        Expressions expressions = expressions().withFinalResolver(expression -> {
+        Expressions expressions = expressions(config).withFinalResolver(expression -> {
             log.debug("unresolved variable in default root bundle: {}", expression);
             hasUnresolvedVariables.set(true);
             return Match.of(expression);
@@ -118,7 +138,7 @@ public class DeployerBoundary {
         Map<BundleName, BundlePlan> bundles = defaultRootBundle.getBundles();
         assert bundles.size() == 1 : "expected default root bundle to have exactly one bundle";
         BundlePlan bundle = bundles.values().iterator().next();
-        Artifact artifact = repository.resolveArtifact(bundle.getGroupId(), bundle.getArtifactId(),
+        Artifact artifact = repositoryProvider.get().resolveArtifact(bundle.getGroupId(), bundle.getArtifactId(),
                 bundle.getVersion(), ArtifactType.bundle, bundle.getClassifier());
         if (artifact == null)
             throw badRequest("root bundle not found: " + bundle);
@@ -152,6 +172,7 @@ public class DeployerBoundary {
             throw e;
         }
 
+        RootBundleConfig rootBundleConfig = configProducer.getConfig().getRootBundle();
         if (rootBundleConfig != null && rootBundleConfig.getShutdownAfterBoot() == TRUE)
             container.shutdown();
     }
@@ -159,57 +180,72 @@ public class DeployerBoundary {
 
     @Inject Principal principal;
     @Inject Container container;
-    @Inject Repository repository;
+    @Inject Provider<Repository> repositoryProvider;
+    @Inject Provider<VersionIndex> versionIndexProvider;
+    @Inject Fingerprints fingerprints;
+    @Inject Parallel parallel;
 
-    @Inject @Config("variables") Map<VariableName, String> configuredVariables;
-    @Inject @Config("root-bundle") RootBundleConfig rootBundleConfig;
-    @Inject @Config("key-store") KeyStoreConfig keyStore;
-    @Inject @Config("triggers") Set<Trigger> triggers;
-    @Inject @Config("use.default.config") boolean useDefaultConfig;
+    /**
+     * This bean is pooled, so it would keep the config it was created with forever. Instead, every apply takes one
+     * snapshot of the current config, so a config reload takes effect with the next apply, but not within one.
+     */
+    @Inject ConfigProducer configProducer;
 
     @Inject Audits audits;
     @Inject Instance<Deployer> deployers;
 
-    private Expressions expressions() {
+    private static Expressions expressions(DeployerConfig config) {
         return new Expressions()
-                .withAllNew(configuredVariables)
-                .withRootBundleConfig(rootBundleConfig)
-                .withKeyStore(keyStore);
+                .withAllNew(config.getVariables())
+                .withRootBundleConfig(config.getRootBundle())
+                .withKeyStore(config.getKeyStore());
     }
 
     public void apply(Trigger trigger, Map<VariableName, String> variables) {
         synchronized (CONTAINER_LOCK) {
-            if (triggers.contains(trigger)) {
-                Execution execution = new Execution().withVariables(variables);
-
-                try {
-                    container.startBatch();
-                    if (hasRootBundleConfigFile()) {
-                        Path plan = getRootBundlePath();
-                        log.info("load plan from: {}", plan);
-                        execution.apply(reader(plan), plan.toString());
-                    } else if (useDefaultConfig) {
-                        throw new RuntimeException("For security reasons, applying the default root bundle "
-                                + "is only allowed when there is a configuration file. "
-                                + "See https://github.com/t1/deployer/issues/61");
-                    } else {
-                        log.info("load default root plan");
-                        execution.apply(new StringReader(DEFAULT_ROOT_BUNDLE), "default root bundle");
+            Execution execution = new Execution(configProducer.getConfig());
+            if (execution.config.getTriggers().contains(trigger)) {
+                try (Metrics.Timing timing = Metrics.time("apply")) {
+                    try (VersionIndex.Apply versions = execution.versionIndex.startApply()) {
+                        container.startBatch();
+                        fingerprints.startApply();
+                        execution.run(variables);
+                    } catch (RuntimeException e) {
+                        container.rollbackBatch();
+                        throw e;
                     }
-                } catch (RuntimeException e) {
-                    container.rollbackBatch();
-                    throw e;
-                }
-                ProcessState processState = container.commitBatch();
+                    ProcessState processState = container.commitBatch();
+                    fingerprints.commit();
 
-                audits.setProcessState(processState);
-                audits.applied(trigger, principal, variables, audits);
+                    audits.setProcessState(processState);
+                    audits.applied(trigger, principal, variables, audits);
+                }
             } else {
                 log.info("ignoring disabled trigger {}", trigger);
             }
         }
     }
 
+    /**
+     * Run the plan just like {@link #apply(Trigger, Map)} does and collect the audits, but then roll the batch back
+     * instead of committing it. The artifacts are not even downloaded.
+     *
+     * @return the composite operation that would have been executed, in DMR notation
+     */
+    public String dryRun(Map<VariableName, String> variables) {
+        synchronized (CONTAINER_LOCK) {
+            Execution execution = new Execution(configProducer.getConfig());
+            container.startBatch();
+            try (VersionIndex.Apply versions = execution.versionIndex.startApply()) {
+                fingerprints.startApply();
+                execution.run(variables);
+                return container.previewBatch();
+            } finally {
+                container.rollbackBatch();
+            }
+        }
+    }
+
     private boolean hasRootBundleConfigFile() { return isRegularFile(getRootBundlePath()); }
 
     private BufferedReader reader(Path plan) {
@@ -222,17 +258,36 @@ public class DeployerBoundary {
 
 
     private class Execution {
-        private Expressions expressions = expressions();
+        private final DeployerConfig config;
+        private final Repository repository = repositoryProvider.get();
+        private final VersionIndex versionIndex = versionIndexProvider.get();
+        private Expressions expressions;
+
+        private Execution(DeployerConfig config) {
+            this.config = config;
+            this.expressions = expressions(config);
+        }
 
-        private Execution withVariables(Map<VariableName, String> variables) {
+        private void run(Map<VariableName, String> variables) {
             this.expressions = this.expressions.withAllNew(variables);
-            return this;
+            if (hasRootBundleConfigFile()) {
+                Path plan = getRootBundlePath();
+                log.info("load plan from: {}", plan);
+                apply(reader(plan), plan.toString());
+            } else if (config.isDefault()) {
+                throw new RuntimeException("For security reasons, applying the default root bundle "
+                        + "is only allowed when there is a configuration file. "
+                        + "See https://github.com/t1/deployer/issues/61");
+            } else {
+                log.info("load default root plan");
+                apply(new StringReader(DEFAULT_ROOT_BUNDLE), "default root bundle");
+            }
         }
 
         private void apply(Reader reader, String sourceMessage) {
             String failureMessage = "can't apply plan [" + sourceMessage + "]";
             try {
-                this.apply(Plan.load(expressions, reader, sourceMessage));
+                this.apply(load(reader, sourceMessage));
             } catch (WebApplicationApplicationException e) {
                 log.info(failureMessage);
                 throw e;
@@ -249,28 +304,80 @@ public class DeployerBoundary {
             }
         }
 
+        private Plan load(Reader reader, String sourceMessage) {
+            try (Metrics.Timing timing = Metrics.time("parse").attribute("source", sourceMessage)) {
+                return Plan.load(expressions, reader, sourceMessage);
+            }
+        }
+
         private void apply(Plan plan) {
-            deployers.forEach(deployer -> deployer.apply(plan));
+            try (Metrics.Timing timing = Metrics.time("apply-plan")) {
+                deployers.forEach(deployer -> deployer.apply(plan, config));
+
+                List<BundlePlan> bundles = plan.bundles().collect(toList());
+                Map<String, FetchedBundle> fetched = fetch(bundles);
+                bundles.forEach(bundle -> applyBundle(bundle, fetched.get(coordinates(bundle))));
+            }
+        }
+
+        /**
+         * Resolve and download the distinct bundle artifacts in parallel, so the (sequential) application of all
+         * instances doesn't have to wait for the repository one after the other.
+         */
+        private Map<String, FetchedBundle> fetch(List<BundlePlan> bundles) {
+            Map<String, BundlePlan> distinct = new LinkedHashMap<>();
+            bundles.forEach(bundle -> distinct.putIfAbsent(coordinates(bundle), bundle));
+            List<FetchedBundle> fetched;
+            try (Metrics.Timing timing = Metrics.time("fetch-bundles")) {
+                fetched = parallel.map(new ArrayList<>(distinct.values()), versionIndex.propagate(this::fetch));
+            }
+            Map<String, FetchedBundle> result = new HashMap<>();
+            fetched.forEach(bundle -> result.put(bundle.getCoordinates(), bundle));
+            return result;
+        }
 
-            plan.bundles().forEach(this::applyBundle);
+        private FetchedBundle fetch(BundlePlan bundle) {
+            Artifact artifact = repository.resolveArtifact(bundle.getGroupId(), bundle.getArtifactId(),
+                    bundle.getVersion(), ArtifactType.bundle, bundle.getClassifier());
+            if (artifact == null)
+                throw badRequest("bundle not found: " + bundle);
+            return new FetchedBundle(coordinates(bundle), artifact.toString(), read(artifact));
         }
 
-        private void applyBundle(BundlePlan bundle) {
+        private void applyBundle(BundlePlan bundle, FetchedBundle fetched) {
             bundle.actualInstances().forEach(instance -> {
                 Expressions pop = this.expressions;
-                try {
+                try (Metrics.Timing timing = Metrics.time("apply-bundle")
+                        .attribute("bundle", fetched.getCoordinates()).attribute("instance", instance.getKey())) {
                     if (instance.getKey() != null)
                         this.expressions = this.expressions.with(NAME, instance.getKey());
                     this.expressions = this.expressions.withAllReplacing(instance.getValue());
-                    Artifact artifact = repository.resolveArtifact(bundle.getGroupId(), bundle.getArtifactId(),
-                            bundle.getVersion(), ArtifactType.bundle, bundle.getClassifier());
-                    if (artifact == null)
-                        throw badRequest("bundle not found: " + bundle);
-                    apply(artifact.getReader(), artifact.toString());
+                    apply(new StringReader(fetched.getPlan()), fetched.getSource());
                 } finally {
                     this.expressions = pop;
                 }
             });
         }
     }
+
+    private static String coordinates(BundlePlan bundle) {
+        return bundle.getGroupId() + ":" + bundle.getArtifactId() + ":" + bundle.getVersion()
+                + ((bundle.getClassifier() == null) ? "" : ":" + bundle.getClassifier());
+    }
+
+    private static String read(Artifact artifact) {
+        try (Reader reader = artifact.getReader()) {
+            Scanner scanner = new Scanner(reader).useDelimiter("\\A");
+            return scanner.hasNext() ? scanner.next() : "";
+        } catch (IOException e) {
+            throw new RuntimeException("can't read bundle [" + artifact + "]", e);
+        }
+    }
+
+    @Value
+    private static class FetchedBundle {
+        String coordinates;
+        String source;
+        String plan;
+    }
 }
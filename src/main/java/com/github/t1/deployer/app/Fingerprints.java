@@ -0,0 +1,121 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.model.*;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * Remembers the checksum of every deployable after it was applied successfully, so applying an unchanged plan again
+ * doesn't have to ask the repository at all: if the deployment in the container still has the checksum we remembered
+ * for the planned group-id, artifact-id, version, type, and classifier, nothing has changed. If the fingerprint is
+ * missing or the deployment was changed in the meantime, the deployer falls back to the full verification.
+ * <p>
+ * Snapshots and versions like <code>LATEST</code> can change in the repository any time, so they are never
+ * fingerprinted. We only keep the last version of every artifact, and write them to a small file, so they survive a
+ * restart.
+ */
+@Slf4j
+@ApplicationScoped
+class Fingerprints {
+    @Value
+    private static class Fingerprint {
+        Version version;
+        Checksum checksum;
+    }
+
+    @Inject @Config("fingerprints-file") Path file;
+
+    private Map<String, Fingerprint> known;
+    private final Map<String, Fingerprint> staged = new LinkedHashMap<>();
+
+    /** Is the deployed checksum the one we remembered for the artifact in the planned version? */
+    public synchronized boolean matches(DeployablePlan plan, Checksum deployed) {
+        if (deployed == null || !isFixed(plan.getVersion()))
+            return false;
+        if (plan.getChecksum() != null && !plan.getChecksum().equals(deployed))
+            return false;
+        return new Fingerprint(plan.getVersion(), deployed).equals(known().get(key(plan)));
+    }
+
+    /** Remember the checksum of the planned artifact, when the current apply is committed */
+    public synchronized void stage(DeployablePlan plan, Checksum checksum) {
+        if (checksum != null && isFixed(plan.getVersion()))
+            staged.put(key(plan), new Fingerprint(plan.getVersion(), checksum));
+    }
+
+    /** Forget what was staged before, e.g. by a failed apply or a dry run */
+    public synchronized void startApply() { staged.clear(); }
+
+    public synchronized void commit() {
+        if (staged.isEmpty())
+            return;
+        log.debug("commit {} fingerprints", staged.size());
+        known().putAll(staged);
+        staged.clear();
+        write();
+    }
+
+    private static boolean isFixed(Version version) {
+        return !version.isSnapshot() && !version.matches("CURRENT")
+                && !version.matches("LATEST") && !version.matches("UNSTABLE");
+    }
+
+    private static String key(DeployablePlan plan) {
+        return plan.getGroupId() + ":" + plan.getArtifactId() + ":" + plan.getType()
+                + ((plan.getClassifier() == null) ? "" : ":" + plan.getClassifier());
+    }
+
+
+    private Map<String, Fingerprint> known() {
+        if (known == null) {
+            known = new LinkedHashMap<>();
+            load();
+        }
+        return known;
+    }
+
+    private void load() {
+        if (file == null || !Files.isRegularFile(file))
+            return;
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+                parse(line);
+        } catch (IOException | RuntimeException e) {
+            log.warn("can't load fingerprints from '{}'; continue with what we have: {}", file, e.toString());
+        }
+        log.debug("loaded {} fingerprints from '{}'", known.size(), file);
+    }
+
+    private void parse(String line) {
+        if (line.trim().isEmpty())
+            return;
+        String[] split = line.split(" ");
+        if (split.length != 3)
+            throw new IllegalArgumentException("expected key, version, and checksum but got: " + line);
+        known.put(split[0], new Fingerprint(new Version(split[1]), Checksum.fromString(split[2])));
+    }
+
+    private void write() {
+        if (file == null)
+            return;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, UTF_8)) {
+                for (Map.Entry<String, Fingerprint> entry : known.entrySet())
+                    writer.write(entry.getKey() + " " + entry.getValue().getVersion()
+                            + " " + entry.getValue().getChecksum() + "\n");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("can't write fingerprints to '{}': {}", file, e.toString());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.tools.Metrics;
+
+import javax.ejb.Stateless;
+import javax.ws.rs.*;
+
+/** The timing of the phases of applying a plan and other gauges, for Prometheus to scrape; also available via JMX. */
+@Path("/metrics")
+@Stateless
+public class MetricsBoundary {
+    @GET
+    @Produces("text/plain; version=0.0.4")
+    public String getMetrics() { return Metrics.toPrometheus(); }
+}
@@ -0,0 +1,17 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.tools.Metrics;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.*;
+
+/**
+ * The {@link Metrics} are static and registered in the platform MBean server, so they outlive the application;
+ * remove them when it stops, so they don't keep the old class loader and a redeployment can register them again.
+ */
+@Singleton
+@Startup
+public class MetricsLifecycle {
+    @PreDestroy
+    void stop() { Metrics.removeAll(); }
+}
@@ -1,6 +1,6 @@
 package com.github.t1.deployer.app;
 
-import com.github.t1.deployer.model.Config;
+import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.tools.FileWatcher;
 import com.github.t1.log.Logged;
 import lombok.extern.slf4j.Slf4j;
@@ -21,30 +21,35 @@ import static java.util.Collections.*;
 @Logged(level = INFO)
 public class RootFileWatcher {
     @Inject DeployerBoundary deployer;
+    @Inject ConfigProducer configProducer;
     @Inject @Config("triggers") Set<Trigger> triggers;
+    @Inject @Config("file-change.quiet-window") Age quietWindow;
 
+    private TriggerQueue triggerQueue;
     private FileWatcher fileWatcher;
 
     @PostConstruct
     void start() {
         if (triggers.contains(startup))
             deployer.applyAsync(startup);
+        fileWatcher = new FileWatcher().watch(configProducer.getConfigFile(), configProducer::reload);
         if (triggers.contains(fileChange))
-            startFileWatcher();
+            watchRootBundle();
+        fileWatcher.start();
     }
 
-    private void startFileWatcher() {
+    private void watchRootBundle() {
         Path rootBundle = deployer.getRootBundlePath();
         log.info("start file watcher on {}", rootBundle);
-        fileWatcher = new FileWatcher(rootBundle, () -> deployer.apply(fileChange, emptyMap()));
-        fileWatcher.start();
+        triggerQueue = new TriggerQueue(quietWindow, trigger -> deployer.apply(trigger, emptyMap()));
+        fileWatcher.watch(rootBundle, () -> triggerQueue.submit(fileChange));
     }
 
     @PreDestroy
     void stop() {
-        if (fileWatcher != null) {
-            log.info("stop file watcher");
-            fileWatcher.shutdown();
-        }
+        log.info("stop file watcher");
+        fileWatcher.shutdown();
+        if (triggerQueue != null)
+            triggerQueue.shutdown();
     }
 }
@@ -0,0 +1,92 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.model.Age;
+import com.github.t1.deployer.tools.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Debounces triggers: editors and config management tools often emit several file events for one save, so the
+ * triggers are only applied after a quiet window without new triggers, and every kind of trigger only once.
+ */
+@Slf4j
+class TriggerQueue {
+    static final Age DEFAULT_QUIET_WINDOW = new Age("500 ms");
+    private static final String QUEUE_DEPTH = "trigger_queue_depth";
+    private static final String COALESCED = "triggers_coalesced_total";
+
+    private final Duration quietWindow;
+    private final Consumer<Trigger> apply;
+    private final ScheduledExecutorService executor;
+
+    private final Set<Trigger> pending = EnumSet.noneOf(Trigger.class);
+    private ScheduledFuture<?> scheduled;
+    private int queueDepth;
+    private long coalesced;
+
+    TriggerQueue(Age quietWindow, Consumer<Trigger> apply) {
+        this(quietWindow, apply, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TriggerQueue");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /** the executor runs the apply after the quiet window; tests can pass one that runs it when they want */
+    TriggerQueue(Age quietWindow, Consumer<Trigger> apply, ScheduledExecutorService executor) {
+        this.quietWindow = ((quietWindow == null) ? DEFAULT_QUIET_WINDOW : quietWindow).getDuration();
+        this.apply = apply;
+        this.executor = executor;
+        Metrics.gauge(QUEUE_DEPTH, "Number of triggers queued since the last apply", this::getQueueDepth);
+        Metrics.counter(COALESCED, "Number of triggers that didn't result in an apply of their own",
+                this::getCoalesced);
+    }
+
+    public synchronized void submit(Trigger trigger) {
+        queueDepth++;
+        if (!pending.add(trigger))
+            coalesced++;
+        if (scheduled != null)
+            scheduled.cancel(false);
+        log.debug("queued {}: {} triggers pending", trigger, queueDepth);
+        scheduled = executor.schedule(this::flush, quietWindow.toMillis(), MILLISECONDS);
+    }
+
+    /** the number of triggers queued since the last apply */
+    public synchronized int getQueueDepth() { return queueDepth; }
+
+    /** the total number of triggers that didn't result in an apply of their own */
+    public synchronized long getCoalesced() { return coalesced; }
+
+    private void flush() {
+        List<Trigger> triggers;
+        synchronized (this) {
+            if (pending.isEmpty())
+                return;
+            triggers = new ArrayList<>(pending);
+            log.info("apply {} for {} queued triggers; {} coalesced in total", triggers, queueDepth, coalesced);
+            pending.clear();
+            queueDepth = 0;
+            scheduled = null;
+        }
+        for (Trigger trigger : triggers) {
+            try {
+                apply.accept(trigger);
+            } catch (RuntimeException e) {
+                log.error("failed to apply " + trigger, e);
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        Metrics.remove(QUEUE_DEPTH);
+        Metrics.remove(COALESCED);
+    }
+}
@@ -37,8 +37,7 @@ public abstract class AbstractResource<T extends AbstractResource<T>> {
     }
 
     protected void read(ModelNode address) {
-        ModelNode readResource = createReadResourceOperation(address, true);
-        ModelNode response = batch.executeRaw(readResource);
+        ModelNode response = batch.read(address);
         if (response == null)
             throw new RuntimeException("read-resource not properly mocked: " + this);
         if (isSuccessfulOutcome(response)) {
@@ -53,6 +52,9 @@ public abstract class AbstractResource<T extends AbstractResource<T>> {
         }
     }
 
+    /** We know that this resource doesn't exist, e.g. as it's not in the list of all resources of its type */
+    public void notFound() { this.deployed = false; }
+
     protected abstract ModelNode address();
 
     protected abstract void readFrom(ModelNode result);
@@ -87,6 +89,14 @@ public abstract class AbstractResource<T extends AbstractResource<T>> {
 
     public boolean matchesId(T that) { return this.getId().equals(that.getId()); }
 
+    public boolean matchesAddress(T that) { return this.address().equals(that.address()); }
+
+    /**
+     * Is that resource at a different address only a variant of this one, so updating it turns it into this one?
+     * Only used when there is no resource at the exact address.
+     */
+    public boolean isVariantOf(T that) { return false; }
+
     protected static String stringOrNull(ModelNode node, String name) {
         return getOptional(node, name).map(ModelNode::asString).orElse(null);
     }
@@ -1,6 +1,7 @@
 package com.github.t1.deployer.container;
 
-import com.github.t1.deployer.model.ProcessState;
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Metrics;
 import lombok.*;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,8 @@ import static com.github.t1.deployer.container.Container.*;
 import static com.github.t1.deployer.model.ProcessState.*;
 import static com.github.t1.problem.WebException.*;
 import static java.util.Locale.*;
+import static java.util.function.Function.*;
+import static java.util.stream.Collectors.*;
 import static org.jboss.as.controller.client.helpers.ClientConstants.*;
 import static org.jboss.as.controller.client.helpers.Operations.*;
 import static org.wildfly.plugin.core.ServerHelper.*;
@@ -34,6 +37,9 @@ class Batch {
 
     private static final boolean DEBUG = Boolean.getBoolean(CLI_DEBUG);
     private static final int STARTUP_TIMEOUT = 30;
+    private static final int TYPES = TypeEnum.values().length;
+    /** the attributes that the audits don't show, so the preview doesn't show them either */
+    private static final List<String> CONFIDENTIAL_ATTRIBUTES = Arrays.asList("user-name", "password");
 
     private static final OperationMessageHandler LOGGING = (severity, message) -> {
         switch (severity) {
@@ -50,8 +56,13 @@ class Batch {
     };
 
     @Inject ModelControllerClient client;
+    @Inject ModelControllerClientProducer clients;
+    @Inject @Config("deployment-chunk-size") Integer deploymentChunkSize;
 
     private CompositeOperationBuilder batch;
+    /** the {@link #rank(ModelNode) rank} of every step in the batch, in the order they were added */
+    private final List<Integer> ranks = new ArrayList<>();
+    private Map<String, ModelNode> snapshot;
 
 
     @SneakyThrows({ InterruptedException.class, TimeoutException.class })
@@ -79,6 +90,13 @@ class Batch {
         ModelNode result = executeRaw(shutdown);
         if (!isSuccessfulOutcome(result))
             log.error("{} -> {}", operation, result);
+        invalidateClient();
+    }
+
+    /** the shared client may be broken, so it has to be probed before it's used again */
+    private void invalidateClient() {
+        if (clients != null)
+            clients.invalidate();
     }
 
 
@@ -116,21 +134,63 @@ class Batch {
 
 
     public Stream<ModelNode> readResource(ModelNode address) {
-        ModelNode result = executeRaw(createReadResourceOperation(address, true));
+        ModelNode result = read(address);
         checkResponse(result);
         return result.get("result").asList().stream();
     }
 
+    /** The raw response of a recursive read-resource; taken from the snapshot, if it contains the address */
+    public ModelNode read(ModelNode address) {
+        ModelNode response = snapshot().get(address.toString());
+        return (response == null) ? executeRaw(createReadResourceOperation(address, true)) : response;
+    }
+
+    /**
+     * Read all resources we manage in one composite operation, instead of one read-resource per type.
+     * The snapshot is valid until the next batch is started, committed, or rolled back.
+     */
+    private Map<String, ModelNode> snapshot() {
+        if (snapshot == null) {
+            List<ModelNode> addresses = Stream.of(
+                    LogHandlerResource.allAddresses(),
+                    LoggerResource.allAddresses(),
+                    DataSourceResource.allAddresses(),
+                    DeploymentResource.allAddresses())
+                    .flatMap(identity())
+                    .collect(toList());
+            ModelNode composite = createCompositeOperation();
+            addresses.forEach(address -> composite.get(STEPS).add(createReadResourceOperation(address, true)));
+            ModelNode response = executeRaw(composite);
+            snapshot = new HashMap<>();
+            if (isSuccessfulOutcome(response)) {
+                ModelNode result = response.get(RESULT);
+                for (int i = 0; i < addresses.size(); i++)
+                    if (result.has("step-" + (i + 1)))
+                        snapshot.put(addresses.get(i).toString(), result.get("step-" + (i + 1)));
+            } else {
+                log.debug("snapshot failed; fall back to single reads: {}", response);
+            }
+        }
+        return snapshot;
+    }
+
     public void addStep(ModelNode request) {
         assert batch != null : "batch " + id + " not started";
 
+        int rank = rank(request);
         batch.addStep(request);
+        ranks.add(rank);
     }
 
     @SneakyThrows(IOException.class)
     public ModelNode executeRaw(ModelNode command) {
         logCli("execute command {}", command);
-        ModelNode result = client.execute(command, LOGGING);
+        ModelNode result;
+        try (Metrics.Timing timing = Metrics.time("container.execute")
+                .attribute("operation", command.has(OP) ? command.get(OP).asString() : null)
+                .attribute("address", command.has(ADDRESS) ? command.get(ADDRESS) : null)) {
+            result = client.execute(command, LOGGING);
+        }
         logCli("response {}", result);
         return result;
     }
@@ -195,7 +255,9 @@ class Batch {
         if (this.batch != null)
             throw new IllegalStateException("already started batch " + id);
         log.debug("--------- start batch {}", id);
+        this.snapshot = null;
         this.batch = CompositeOperationBuilder.create(true);
+        this.ranks.clear();
     }
 
     public void rollbackBatch() {
@@ -203,9 +265,35 @@ class Batch {
             throw new IllegalStateException("no batch " + id + " started");
         log.debug("--------- rollback batch {}", id);
         this.batch = null;
+        this.snapshot = null;
+    }
+
+    /**
+     * A copy of the composite operation with the steps sorted, just like {@link #commitBatch()} would execute it;
+     * but the confidential attributes like passwords are {@link Password#CONCEALED concealed}, like in the audits.
+     */
+    public ModelNode previewBatch() {
+        if (this.batch == null)
+            throw new IllegalStateException("no batch " + id + " started");
+        ModelNode operation = batch.build().getOperation().clone();
+        ModelNode steps = operation.get(STEPS);
+        if (steps.has(0))
+            sortSteps(steps);
+        for (int i = 0; steps.has(i); i++)
+            conceal(steps.get(i));
+        return operation;
+    }
+
+    private static void conceal(ModelNode step) {
+        for (String attribute : CONFIDENTIAL_ATTRIBUTES)
+            if (step.hasDefined(attribute))
+                step.get(attribute).set(Password.CONCEALED);
+        if (step.hasDefined(OP) && step.get(OP).asString().equals(WRITE_ATTRIBUTE_OPERATION)
+                && step.hasDefined(NAME) && CONFIDENTIAL_ATTRIBUTES.contains(step.get(NAME).asString())
+                && step.hasDefined(VALUE))
+            step.get(VALUE).set(Password.CONCEALED);
     }
 
-    @SneakyThrows(IOException.class)
     public ProcessState commitBatch() {
         if (this.batch == null)
             throw new IllegalStateException("no batch " + id + " started");
@@ -216,18 +304,102 @@ class Batch {
         ProcessState processState;
         if (operation.getOperation().get(STEPS).has(0)) {
             sortSteps(operation.getOperation().get(STEPS));
-            logCli("execute batch: {}", operation.getOperation());
-            ModelNode result = client.execute(operation, LOGGING);
-            logCli("response {}", result);
-            processState = checkResponse(result);
+            try (Metrics.Timing timing = Metrics.time("container.commit")
+                    .attribute("steps", operation.getOperation().get(STEPS).asList().size())) {
+                processState = isChunked() ? executeChunked(operation) : execute(operation);
+            }
         } else {
             processState = running;
             log.debug("no batch to execute");
         }
         this.batch = null;
+        this.snapshot = null;
+        return processState;
+    }
+
+    @SneakyThrows(IOException.class)
+    private ProcessState execute(Operation operation) {
+        logCli("execute batch: {}", operation.getOperation());
+        ModelNode result = client.execute(operation, LOGGING);
+        logCli("response {}", result);
+        return checkResponse(result);
+    }
+
+    private boolean isChunked() { return deploymentChunkSize != null && deploymentChunkSize > 0; }
+
+    /**
+     * Execute the sorted steps in several composite operations, so a big batch doesn't have to carry the content of
+     * all deployments in one huge request that blocks the container for minutes: every run of other steps goes into
+     * one composite, and the deployments go into chunks of at most {@link #deploymentChunkSize} steps.
+     *
+     * Every chunk is atomic, but when a chunk fails, the chunks before stay committed and the rest is not executed.
+     */
+    private ProcessState executeChunked(Operation operation) {
+        List<Operation> chunks = chunks(operation);
+        ProcessState processState = running;
+        for (int i = 0; i < chunks.size(); i++) {
+            Operation chunk = chunks.get(i);
+            int size = chunk.getOperation().get(STEPS).asList().size();
+            ProcessState chunkState;
+            try {
+                chunkState = execute(chunk);
+            } catch (RuntimeException e) {
+                log.error("chunk {} of {} failed; the {} chunks before stay committed", i + 1, chunks.size(), i);
+                throw e;
+            }
+            log.info("committed chunk {} of {} with {} steps", i + 1, chunks.size(), size);
+            if (chunkState.compareTo(processState) > 0)
+                processState = chunkState;
+        }
         return processState;
     }
 
+    private List<Operation> chunks(Operation operation) {
+        List<Operation> chunks = new ArrayList<>();
+        CompositeOperationBuilder chunk = null;
+        boolean chunkOfDeployments = false;
+        int size = 0;
+        for (ModelNode step : operation.getOperation().get(STEPS).asList()) {
+            boolean deployment = isDeployment(step);
+            if (chunk != null && (deployment != chunkOfDeployments || (deployment && size >= deploymentChunkSize))) {
+                chunks.add(chunk.build());
+                chunk = null;
+            }
+            if (chunk == null) {
+                chunk = CompositeOperationBuilder.create(true);
+                chunkOfDeployments = deployment;
+                size = 0;
+            }
+            chunk.addStep(withContentOf(step, operation.getInputStreams(), chunk));
+            size++;
+        }
+        if (chunk != null)
+            chunks.add(chunk.build());
+        return chunks;
+    }
+
+    private static boolean isDeployment(ModelNode step) {
+        return type(step) == DEPLOYABLE || operation(step) == OperationEnum.FULL_REPLACE_DEPLOYMENT;
+    }
+
+    /** A copy of the step, with the input streams of its content moved to the chunk */
+    private static ModelNode withContentOf(ModelNode step, List<InputStream> inputStreams,
+            CompositeOperationBuilder chunk) {
+        ModelNode copy = step.clone();
+        if (copy.hasDefined(CONTENT)) {
+            ModelNode contents = copy.get(CONTENT);
+            for (int i = 0; contents.has(i); i++) {
+                ModelNode content = contents.get(i);
+                if (content.hasDefined(INPUT_STREAM_INDEX)) {
+                    int index = chunk.getInputStreamCount();
+                    chunk.addInputStream(inputStreams.get(content.get(INPUT_STREAM_INDEX).asInt()));
+                    content.get(INPUT_STREAM_INDEX).set(index);
+                }
+            }
+        }
+        return copy;
+    }
+
     /**
      * We sort the steps to prevent dependency problems like loggers depending on log-handlers and so that deployables
      * can use their loggers when they are deployed.
@@ -243,12 +415,37 @@ class Batch {
      * - remove log-handlers
      *
      * We can't reasonably do this ordering from within the deployers, as they do the adding _and_ the removing.
+     *
+     * The steps are classified only once, when they are added, so sorting is a comparison of primitive keys:
+     * the rank in the upper half and the index in the lower half, which also keeps the sort stable.
      */
     private void sortSteps(ModelNode steps) {
-        List<ModelNode> list = new ArrayList<>(steps.asList());
-        list.sort(Comparator.comparing(Batch::operation)
-                            .thenComparing(node -> operation(node).factor() * type(node).ordinal()));
-        steps.set(list);
+        List<ModelNode> list = steps.asList();
+        assert list.size() == ranks.size() : "expected " + ranks.size() + " ranks for " + list.size() + " steps";
+        long[] keys = new long[list.size()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = ((long) ranks.get(i) << 32) | i;
+        Arrays.sort(keys);
+        List<ModelNode> sorted = new ArrayList<>(keys.length);
+        for (long key : keys)
+            sorted.add(list.get((int) key));
+        steps.set(sorted);
+    }
+
+    /**
+     * The position of the step in the order described in {@link #sortSteps(ModelNode)}: first by operation, then by
+     * type, reversed for removes. Fails for steps we don't know how to order, so they are rejected when added.
+     */
+    private static int rank(ModelNode step) {
+        OperationEnum operation;
+        TypeEnum type;
+        try {
+            operation = operation(step);
+            type = type(step);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("can't add unsupported step to batch: " + step, e);
+        }
+        return operation.ordinal() * 2 * TYPES + operation.factor() * type.ordinal() + TYPES;
     }
 
     @SuppressWarnings("unused")
@@ -286,6 +483,7 @@ class Batch {
             case "logging":
                 switch (address.asPropertyList().get(1).getName()) {
                 case "logger":
+                case "root-logger":
                     return LOGGER;
                 case "console-handler":
                 case "custom-handler":
@@ -44,6 +44,8 @@ public class Container {
 
     public static Path getConfigDir() { return Paths.get(System.getProperty("jboss.server.config.dir")); }
 
+    public static Path getDataDir() { return Paths.get(System.getProperty("jboss.server.data.dir")); }
+
     public LogHandlerResourceBuilder builderFor(LogHandlerType type, LogHandlerName name) {
         return LogHandlerResource.builder(type, name, batch);
     }
@@ -66,5 +68,8 @@ public class Container {
 
     public ProcessState commitBatch() { return batch.commitBatch(); }
 
+    /** The composite operation a commit would execute now, in DMR notation; the batch stays open */
+    public String previewBatch() { return batch.previewBatch().toString(); }
+
     public void rollbackBatch() { batch.rollbackBatch(); }
 }
@@ -67,6 +67,8 @@ public final class DataSourceResource extends AbstractResource<DataSourceResourc
                     .map(node -> toDataSourceResource(name(node, xa), batch, node.get("result"), xa));
     }
 
+    static Stream<ModelNode> allAddresses() { return Stream.of(address(ALL, false), address(ALL, true)); }
+
     private static DataSourceName name(ModelNode node, boolean xa) {
         ModelNode address = node.get("address").get(1);
         ModelNode dataSource = xa ? address.get("xa-data-source") : address.get("data-source");
@@ -127,6 +129,11 @@ public final class DataSourceResource extends AbstractResource<DataSourceResourc
 
     @Override protected ModelNode address() { return address(name, xa); }
 
+    /** an xa and a non-xa data source with the same name can be converted into each other; see {@link #updateXa} */
+    @Override public boolean isVariantOf(DataSourceResource that) {
+        return this.name.equals(that.name) && this.xa != that.xa;
+    }
+
     private static ModelNode address(DataSourceName name, boolean xa) {
         return Operations.createAddress(addressStrings(name, xa));
     }
@@ -45,11 +45,15 @@ public class DeploymentResource extends AbstractResource<DeploymentResource> {
                     .sorted(comparing(DeploymentResource::name));
     }
 
+    static Stream<ModelNode> allAddresses() { return Stream.of(address(ALL)); }
+
     private static DeploymentResource toDeployment(ModelNode node, Batch batch) {
         DeploymentName name = readName(node);
         Checksum hash = readHash(node);
         log.debug("read deployment '{}' [{}]", name, hash);
-        return DeploymentResource.builder(name, batch).checksum(hash).get();
+        DeploymentResource deployment = DeploymentResource.builder(name, batch).checksum(hash).get();
+        deployment.deployed = true;
+        return deployment;
     }
 
     public static class DeploymentResourceBuilder implements Supplier<DeploymentResource> {
@@ -12,6 +12,7 @@ import org.jetbrains.annotations.*;
 
 import java.util.*;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.github.t1.deployer.container.LoggerResource.*;
 import static com.github.t1.deployer.model.LogHandlerName.*;
@@ -63,6 +64,10 @@ public final class LogHandlerResource extends AbstractResource<LogHandlerResourc
                      .collect(toList());
     }
 
+    static Stream<ModelNode> allAddresses() {
+        return Arrays.stream(LogHandlerType.values()).map(type -> address(type, ALL));
+    }
+
     private static LogHandlerType type(ModelNode node) {
         return LogHandlerType.valueOfHandlerName(new ArrayList<>(node.get("address").get(1).keys()).get(0));
     }
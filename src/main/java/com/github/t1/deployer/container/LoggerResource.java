@@ -11,6 +11,7 @@ import org.jboss.dmr.ModelNode;
 import java.lang.Boolean;
 import java.util.*;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.github.t1.deployer.model.LoggerCategory.*;
 import static com.github.t1.log.LogLevel.*;
@@ -82,6 +83,8 @@ public final class LoggerResource extends AbstractResource<LoggerResource> {
         return loggers;
     }
 
+    static Stream<ModelNode> allAddresses() { return Stream.of(address(LoggerCategory.ALL), address(ROOT)); }
+
     public boolean isDefaultUseParentHandlers() { return isRoot() || (useParentHandlers == handlers().isEmpty()); }
 
 
@@ -0,0 +1,319 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.tools.Metrics;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.as.controller.client.*;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+
+import java.io.IOException;
+import java.time.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.jboss.as.controller.client.helpers.Operations.*;
+
+/**
+ * Keeps one long-lived client for all requests, instead of connecting again for every request: the client is thread
+ * safe, and connecting is most of the latency of short requests like polling the effective plan. It connects lazily,
+ * probes the connection when it wasn't used for a while or when a call failed, and reconnects with an increasing
+ * backoff, e.g. while the server reloads.
+ * <p>
+ * The {@link #getClient() client} handed out acquires the current connection for every call, so it keeps working
+ * after a reconnect. A replaced connection is closed only when the calls still running on it are done.
+ * The probing and reconnecting runs outside the lock; concurrent callers wait for it to finish.
+ */
+@Slf4j
+class ModelControllerClientPool {
+    static final Duration DEFAULT_KEEP_ALIVE = Duration.ofSeconds(30);
+    static final Duration DEFAULT_BACKOFF = Duration.ofMillis(250);
+    static final int MAX_ATTEMPTS = 6;
+
+    static final String CONNECTS = "container_connects_total";
+    static final String REUSES = "container_connection_reuses_total";
+    static final String FAILED_PROBES = "container_failed_probes_total";
+
+    private static final ModelNode PROBE = createReadAttributeOperation(new ModelNode().setEmptyList(), "server-state");
+
+    private final Callable<ModelControllerClient> connect;
+    private final Duration keepAlive;
+    private final Duration backoff;
+    private final Clock clock;
+
+    @Getter private final ModelControllerClient client = new PooledClient();
+
+    private Connection current;
+    private Instant lastUsed;
+    private boolean suspect;
+    private boolean reconnecting;
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong failedProbes = new AtomicLong();
+
+    ModelControllerClientPool(Callable<ModelControllerClient> connect) {
+        this(connect, DEFAULT_KEEP_ALIVE, DEFAULT_BACKOFF, Clock.systemUTC());
+    }
+
+    ModelControllerClientPool(Callable<ModelControllerClient> connect, Duration keepAlive, Duration backoff,
+            Clock clock) {
+        this.connect = connect;
+        this.keepAlive = keepAlive;
+        this.backoff = backoff;
+        this.clock = clock;
+        Metrics.counter(CONNECTS, "Number of connections made to the container, including reconnects",
+                this::getConnects);
+        Metrics.counter(REUSES, "Number of times an existing connection to the container was used again",
+                this::getReuses);
+        Metrics.counter(FAILED_PROBES, "Number of times a connection to the container was found to be broken",
+                this::getFailedProbes);
+    }
+
+    /** A connection to the container and the number of calls currently running on it */
+    @RequiredArgsConstructor
+    static class Connection {
+        @Getter private final ModelControllerClient client;
+        private int users;
+        private boolean retired;
+    }
+
+    /** Get a healthy connection and count it as used until it's {@link #release(Connection) released} */
+    Connection acquire() {
+        Connection stale;
+        synchronized (this) {
+            awaitReconnect();
+            if (current != null && !suspect && !isIdle()) {
+                reuses.incrementAndGet();
+                return use(current);
+            }
+            stale = current;
+            reconnecting = true;
+        }
+        Connection connection = null;
+        try {
+            if (stale != null && probe(stale.client)) {
+                reuses.incrementAndGet();
+                connection = stale;
+            } else {
+                connection = new Connection(connect());
+            }
+        } finally {
+            ModelControllerClient closing;
+            synchronized (this) {
+                closing = (connection == stale) ? null : retire(stale);
+                current = connection;
+                if (connection != null)
+                    use(connection);
+                reconnecting = false;
+                notifyAll();
+            }
+            close(closing);
+        }
+        return connection;
+    }
+
+    private void awaitReconnect() {
+        try {
+            while (reconnecting)
+                wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while waiting for reconnect", e);
+        }
+    }
+
+    private Connection use(Connection connection) {
+        connection.users++;
+        suspect = false;
+        lastUsed = clock.instant();
+        return connection;
+    }
+
+    /** The call on the connection is done; close it, if it was replaced in the meantime and this was the last call */
+    void release(Connection connection) {
+        boolean last;
+        synchronized (this) {
+            connection.users--;
+            last = connection.retired && connection.users == 0;
+        }
+        if (last)
+            close(connection.client);
+    }
+
+    /** @return the client to close now, or null if there is none or there are still calls running on it */
+    private ModelControllerClient retire(Connection connection) {
+        if (connection == null)
+            return null;
+        connection.retired = true;
+        return (connection.users == 0) ? connection.client : null;
+    }
+
+    /** Something went wrong with the client, e.g. the server reloads, so probe it before it's used again */
+    public synchronized void invalidate() { this.suspect = true; }
+
+    /** the number of connections made, including the reconnects */
+    public long getConnects() { return connects.get(); }
+
+    /** the number of times an existing connection was used again */
+    public long getReuses() { return reuses.get(); }
+
+    /** the number of times a connection was found to be broken */
+    public long getFailedProbes() { return failedProbes.get(); }
+
+    private boolean isIdle() { return !clock.instant().isBefore(lastUsed.plus(keepAlive)); }
+
+    private boolean probe(ModelControllerClient client) {
+        try {
+            if (isSuccessfulOutcome(client.execute(PROBE)))
+                return true;
+        } catch (IOException | RuntimeException e) {
+            log.debug("probe failed: {}", e.toString());
+        }
+        failedProbes.incrementAndGet();
+        return false;
+    }
+
+    private ModelControllerClient connect() {
+        Duration delay = backoff;
+        Exception cause = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (attempt > 1) {
+                log.info("reconnect attempt {} in {} ms", attempt, delay.toMillis());
+                sleep(delay);
+                delay = delay.multipliedBy(2);
+            }
+            try {
+                ModelControllerClient connected = connect.call();
+                connects.incrementAndGet();
+                if (probe(connected))
+                    return connected;
+                close(connected);
+            } catch (Exception e) {
+                log.debug("connect failed: {}", e.toString());
+                cause = e;
+            }
+        }
+        throw new RuntimeException("can't connect to container after " + MAX_ATTEMPTS + " attempts", cause);
+    }
+
+    private static void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while reconnecting", e);
+        }
+    }
+
+    /** Close the connection as soon as the calls running on it are done, and stop exporting the metrics */
+    public void close() {
+        ModelControllerClient closing;
+        synchronized (this) {
+            closing = retire(current);
+            current = null;
+        }
+        close(closing);
+        Metrics.remove(CONNECTS);
+        Metrics.remove(REUSES);
+        Metrics.remove(FAILED_PROBES);
+    }
+
+    private static void close(ModelControllerClient client) {
+        if (client == null)
+            return;
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.debug("can't close client: {}", e.toString());
+        }
+    }
+
+    @Override public String toString() {
+        return "ModelControllerClientPool[connects=" + connects + ", reuses=" + reuses
+                + ", failed-probes=" + failedProbes + "]";
+    }
+
+    private interface Call<T> {
+        T on(ModelControllerClient client) throws IOException;
+    }
+
+    /**
+     * Acquires a connection for every call and releases it when the call is done, or for the async calls, when the
+     * future is done. A failed call invalidates the connection. Closing it does nothing, as the pool closes the
+     * connection.
+     */
+    private class PooledClient implements ModelControllerClient {
+        private <T> T call(Call<T> call) throws IOException {
+            Connection connection = acquire();
+            try {
+                return call.on(connection.client);
+            } catch (IOException e) {
+                invalidate();
+                throw e;
+            } finally {
+                release(connection);
+            }
+        }
+
+        private <T> AsyncFuture<T> callAsync(Function<ModelControllerClient, AsyncFuture<T>> call) {
+            Connection connection = acquire();
+            AsyncFuture<T> future;
+            try {
+                future = call.apply(connection.client);
+            } catch (RuntimeException e) {
+                release(connection);
+                throw e;
+            }
+            future.addListener(new AsyncFuture.AbstractListener<T, Connection>() {
+                @Override public void handleDone(AsyncFuture<? extends T> done, Connection attachment) {
+                    release(attachment);
+                }
+            }, connection);
+            return future;
+        }
+
+        @Override public ModelNode execute(ModelNode operation) throws IOException {
+            return call(client -> client.execute(operation));
+        }
+
+        @Override public ModelNode execute(Operation operation) throws IOException {
+            return call(client -> client.execute(operation));
+        }
+
+        @Override public ModelNode execute(ModelNode operation, OperationMessageHandler messageHandler)
+                throws IOException {
+            return call(client -> client.execute(operation, messageHandler));
+        }
+
+        @Override public ModelNode execute(Operation operation, OperationMessageHandler messageHandler)
+                throws IOException {
+            return call(client -> client.execute(operation, messageHandler));
+        }
+
+        @Override public OperationResponse executeOperation(Operation operation,
+                OperationMessageHandler messageHandler) throws IOException {
+            return call(client -> client.executeOperation(operation, messageHandler));
+        }
+
+        @Override public AsyncFuture<ModelNode> executeAsync(ModelNode operation,
+                OperationMessageHandler messageHandler) {
+            return callAsync(client -> client.executeAsync(operation, messageHandler));
+        }
+
+        @Override public AsyncFuture<ModelNode> executeAsync(Operation operation,
+                OperationMessageHandler messageHandler) {
+            return callAsync(client -> client.executeAsync(operation, messageHandler));
+        }
+
+        @Override public AsyncFuture<OperationResponse> executeOperationAsync(Operation operation,
+                OperationMessageHandler messageHandler) {
+            return callAsync(client -> client.executeOperationAsync(operation, messageHandler));
+        }
+
+        @Override public void close() {}
+
+        @Override public String toString() { return "pooled client of " + ModelControllerClientPool.this; }
+    }
+}
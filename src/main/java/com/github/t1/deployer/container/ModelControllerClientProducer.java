@@ -4,8 +4,9 @@ import com.github.t1.log.Logged;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.as.controller.client.ModelControllerClient;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.*;
+import javax.enterprise.inject.Produces;
 import javax.management.*;
 import java.io.*;
 import java.lang.management.ManagementFactory;
@@ -38,8 +39,21 @@ public class ModelControllerClientProducer implements Serializable {
 
     private static final MBeanServer MBEAN = ManagementFactory.getPlatformMBeanServer();
 
+    private final transient ModelControllerClientPool pool = new ModelControllerClientPool(this::connect);
+
+    /**
+     * The shared client acquires a connection for every call, so it survives reconnects; the connection is closed
+     * only when the application stops, not at the end of the request
+     */
     @Produces
-    ModelControllerClient produceModelControllerClient() throws IOException {
+    ModelControllerClient produceModelControllerClient() { return pool.getClient(); }
+
+    /** Probe the shared client before it's used again, e.g. after a reload or a failed call */
+    public void invalidate() { pool.invalidate(); }
+
+    @PreDestroy void close() { pool.close(); }
+
+    private ModelControllerClient connect() throws IOException {
         URI uri = getContainerUriFromMBeans();
         log.info("connect to JBoss AS on: {}", uri);
         return createModelControllerClient(uri);
@@ -96,8 +110,4 @@ public class ModelControllerClientProducer implements Serializable {
         log.debug("create ModelControllerClient {}://{}:{}", uri.getScheme(), host, port);
         return ModelControllerClient.Factory.create(uri.getScheme(), host, port);
     }
-
-    void disposeModelControllerClient(@Disposes ModelControllerClient client) throws IOException {
-        client.close();
-    }
 }
@@ -1,5 +1,6 @@
 @DependsUpon(packagesOf = {
         com.github.t1.deployer.model.Checksum.class,
+        com.github.t1.deployer.tools.Tools.class,
 
         com.github.t1.problem.ProblemDetail.class,
 
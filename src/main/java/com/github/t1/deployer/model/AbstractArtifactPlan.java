@@ -58,14 +58,14 @@ class AbstractArtifactPlan implements Plan.AbstractPlan {
         }
     }
 
-    public static void fromJson(JsonNode node, AbstractArtifactPlanBuilder builder,
+    public static void fromJson(Expressions expressions, JsonNode node, AbstractArtifactPlanBuilder builder,
             String defaultArtifactId, String defaultVersion) {
-        apply(node, "state", builder::state, DeploymentState::valueOf);
-        apply(node, "group-id", builder::groupId, GroupId::of, "default.group-id");
-        apply(node, "artifact-id", builder::artifactId, ArtifactId::new, "«" + defaultArtifactId + "»");
-        apply(node, "version", builder::version, Version::new, defaultVersion);
-        apply(node, "classifier", builder::classifier, Classifier::new);
-        apply(node, "checksum", builder::checksum, Checksum::fromString);
+        apply(expressions, node, "state", builder::state, DeploymentState::valueOf);
+        apply(expressions, node, "group-id", builder::groupId, GroupId::of, "default.group-id");
+        apply(expressions, node, "artifact-id", builder::artifactId, ArtifactId::new, "«" + defaultArtifactId + "»");
+        apply(expressions, node, "version", builder::version, Version::new, defaultVersion);
+        apply(expressions, node, "classifier", builder::classifier, Classifier::new);
+        apply(expressions, node, "checksum", builder::checksum, Checksum::fromString);
         verify(builder);
     }
 
@@ -8,7 +8,7 @@ import java.util.function.Supplier;
 import static java.nio.charset.StandardCharsets.*;
 import static lombok.AccessLevel.*;
 
-@Builder
+@Builder(toBuilder = true)
 @Getter
 @AllArgsConstructor(access = PRIVATE)
 public class Artifact {
@@ -51,11 +51,11 @@ public class BundlePlan extends AbstractArtifactPlan {
     }
 
 
-    static BundlePlan fromJson(BundleName name, JsonNode node) {
+    static BundlePlan fromJson(Expressions expressions, BundleName name, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete bundles plan '" + name + "'");
         BundlePlanBuilder builder = builder().name(name);
-        AbstractArtifactPlan.fromJson(node, builder, name.getValue(), null);
+        AbstractArtifactPlan.fromJson(expressions, node, builder, name.getValue(), null);
         if (node.has("instances") && !node.get("instances").isNull()) {
             Iterator<Map.Entry<String, JsonNode>> instances = node.get("instances").fields();
             while (instances.hasNext()) {
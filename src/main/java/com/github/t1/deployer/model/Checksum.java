@@ -6,9 +6,12 @@ import lombok.*;
 
 import javax.xml.bind.annotation.*;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.security.*;
 
+import static java.nio.file.StandardOpenOption.*;
 import static javax.xml.bind.DatatypeConverter.*;
 import static lombok.AccessLevel.*;
 
@@ -28,16 +31,27 @@ public class Checksum {
 
     public static Checksum md5(Path path) { return of(path, "MD5"); }
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The file is streamed through the digest, so big artifacts don't have to fit onto the heap */
     @SneakyThrows(IOException.class)
-    private static Checksum of(Path path, String algorithm) { return of(Files.readAllBytes(path), algorithm); }
+    private static Checksum of(Path path, String algorithm) {
+        MessageDigest digest = digest(algorithm);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return of(digest.digest());
+    }
 
-    public static Checksum sha1(byte[] bytes) { return of(bytes, "SHA-1"); }
+    public static Checksum sha1(byte[] bytes) { return of(digest("SHA-1").digest(bytes)); }
 
     @SneakyThrows(NoSuchAlgorithmException.class)
-    private static Checksum of(byte[] bytes, String algorithm) {
-        MessageDigest hash = MessageDigest.getInstance(algorithm);
-        return of(hash.digest(bytes));
-    }
+    static MessageDigest digest(String algorithm) { return MessageDigest.getInstance(algorithm); }
 
     @NonNull
     @XmlValue
@@ -0,0 +1,77 @@
+package com.github.t1.deployer.model;
+
+import java.io.*;
+import java.security.DigestInputStream;
+
+/**
+ * Computes the checksum of everything that is read through it, so e.g. a download can be verified while it's written,
+ * without reading it a second time.
+ */
+public class ChecksumInputStream extends DigestInputStream {
+    public static ChecksumInputStream sha1(InputStream inputStream) {
+        return new ChecksumInputStream(inputStream, "SHA-1", null);
+    }
+
+    public static ChecksumInputStream md5(InputStream inputStream) {
+        return new ChecksumInputStream(inputStream, "MD5", null);
+    }
+
+    /** Compute the same kind of checksum as the expected one, i.e. MD5 for 16 bytes, and SHA-1 otherwise */
+    public static ChecksumInputStream like(Checksum expected, InputStream inputStream) {
+        return new ChecksumInputStream(inputStream, algorithm(expected), null);
+    }
+
+    /**
+     * Fails with an {@link IOException} when the end of the stream is reached and the checksum doesn't match, e.g.
+     * because a proxy truncated the response. So whoever consumes the stream fails, too, instead of using broken bytes.
+     */
+    public static ChecksumInputStream verifying(Checksum expected, InputStream inputStream) {
+        if (inputStream instanceof ChecksumInputStream && ((ChecksumInputStream) inputStream).isVerified(expected))
+            return (ChecksumInputStream) inputStream;
+        return new ChecksumInputStream(inputStream, algorithm(expected), expected);
+    }
+
+    /**
+     * Bytes that have already been verified to have this checksum, e.g. by storing them only after a verified download,
+     * so {@link #verifying(Checksum, InputStream)} them again doesn't digest them a second time.
+     */
+    public static ChecksumInputStream verified(Checksum checksum, InputStream inputStream) {
+        ChecksumInputStream verified = new ChecksumInputStream(inputStream, algorithm(checksum), checksum);
+        verified.on(false);
+        verified.actual = checksum;
+        return verified;
+    }
+
+    private static String algorithm(Checksum checksum) { return (checksum.getBytes().length == 16) ? "MD5" : "SHA-1"; }
+
+    private final Checksum expected;
+    private Checksum actual;
+
+    private ChecksumInputStream(InputStream inputStream, String algorithm, Checksum expected) {
+        super(inputStream, Checksum.digest(algorithm));
+        this.expected = expected;
+    }
+
+    /** The checksum of all bytes read; only available after the end of the stream has been reached. */
+    public Checksum getChecksum() {
+        if (actual == null)
+            throw new IllegalStateException("checksum is only available after reading the complete stream");
+        return actual;
+    }
+
+    private boolean isVerified(Checksum checksum) { return expected != null && expected.equals(checksum) && !on; }
+
+    @Override public int read() throws IOException { return verifyAtEnd(super.read()); }
+
+    @Override public int read(byte[] bytes, int off, int len) throws IOException {
+        return verifyAtEnd(super.read(bytes, off, len));
+    }
+
+    private int verifyAtEnd(int result) throws IOException {
+        if (result < 0 && actual == null)
+            actual = Checksum.of(getMessageDigest().digest());
+        if (result < 0 && expected != null && !expected.equals(actual))
+            throw new IOException("checksum mismatch: expected [" + expected + "] but got [" + actual + "]");
+        return result;
+    }
+}
@@ -50,26 +50,26 @@ public final class DataSourcePlan implements Plan.AbstractPlan {
 
     @Override public String getId() { return name.getValue(); }
 
-    static DataSourcePlan fromJson(DataSourceName name, JsonNode node) {
+    static DataSourcePlan fromJson(Expressions expressions, DataSourceName name, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete data-sources plan '" + name + "'");
         DataSourcePlanBuilder builder = builder().name(name);
-        apply(node, "xa", builder::xa, Tools::trueOrNull, "false");
-        apply(node, "state", builder::state, DeploymentState::valueOf);
-        apply(node, "uri", builder::uri, URI::create);
-        apply(node, "jndi-name", builder::jndiName, identity(), "«java:/datasources/" + name + "»");
-        apply(node, "driver", builder::driver, identity(), defaultDriver(builder.uri));
+        apply(expressions, node, "xa", builder::xa, Tools::trueOrNull, "false");
+        apply(expressions, node, "state", builder::state, DeploymentState::valueOf);
+        apply(expressions, node, "uri", builder::uri, URI::create);
+        apply(expressions, node, "jndi-name", builder::jndiName, identity(), "«java:/datasources/" + name + "»");
+        apply(expressions, node, "driver", builder::driver, identity(), defaultDriver(builder.uri));
 
-        apply(node, "user-name", builder::userName, identity());
-        apply(node, "password", builder::password, identity());
+        apply(expressions, node, "user-name", builder::userName, identity());
+        apply(expressions, node, "password", builder::password, identity());
 
         if (node.hasNonNull("pool")) {
             PoolPlanBuilder pool = PoolPlan.builder();
             JsonNode poolNode = node.get("pool");
-            apply(poolNode, "min", pool::min, Integer::valueOf);
-            apply(poolNode, "initial", pool::initial, Integer::valueOf);
-            apply(poolNode, "max", pool::max, Integer::valueOf);
-            apply(poolNode, "max-age", pool::maxAge, Age::new);
+            apply(expressions, poolNode, "min", pool::min, Integer::valueOf);
+            apply(expressions, poolNode, "initial", pool::initial, Integer::valueOf);
+            apply(expressions, poolNode, "max", pool::max, Integer::valueOf);
+            apply(expressions, poolNode, "max-age", pool::maxAge, Age::new);
             builder.pool(pool.build());
         }
 
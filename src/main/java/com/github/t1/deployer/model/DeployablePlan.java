@@ -37,12 +37,12 @@ public class DeployablePlan extends AbstractArtifactPlan {
         this.error = error;
     }
 
-    static DeployablePlan fromJson(DeploymentName name, JsonNode node) {
+    static DeployablePlan fromJson(Expressions expressions, DeploymentName name, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete deployables plan '" + name + "'");
         DeployablePlanBuilder builder = builder().name(name);
-        AbstractArtifactPlan.fromJson(node, builder, name.getValue(), "«CURRENT»");
-        apply(node, "type", builder::type, ArtifactType::valueOf, "default.deployable-type or «war»");
+        AbstractArtifactPlan.fromJson(expressions, node, builder, name.getValue(), "«CURRENT»");
+        apply(expressions, node, "type", builder::type, ArtifactType::valueOf, "default.deployable-type or «war»");
         return builder.build().verify();
     }
 
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.github.t1.deployer.tools.*;
 import com.github.t1.problem.*;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.*;
 import com.google.common.collect.*;
 import lombok.*;
 import lombok.experimental.Wither;
@@ -106,56 +108,26 @@ public class Expressions {
     /**
      * Replaces all expressions starting with `${` and ending with `}` - may be escaped with a second `$`,
      * i.e. `$${a}` will be replaced by `${a}`.
+     * <p>
+     * The lines and expressions are compiled only once into immutable {@link Template}s and {@link Term}s and
+     * cached by their text. Evaluating them against the variables, root bundle config, etc. of this instance
+     * requires no more parsing.
      */
     public String resolve(String line) { return resolve(line, null); }
 
     public String resolve(String line, String alternative) {
-        StringBuilder out = new StringBuilder();
-        if (line.contains("#"))
-            line = line.substring(0, line.indexOf('#'));
-        Matcher matcher = VAR.matcher(line);
-        int tail = 0;
-        boolean hasNullValue = false;
-        while (matcher.find()) {
-            out.append(line.substring(tail, matcher.start()));
-            if (matcher.start() > 0 && line.charAt(matcher.start() - 1) == '$') {
-                // +1 to skip the var-$ as we already copied the escape-$
-                out.append(line.substring(matcher.start() + 1, matcher.end()));
-            } else {
-                String expression = groupOneOr(matcher, alternative);
-                Match match = resolver().match(expression);
-                String value = match.orElseThrow(() -> new UnresolvedVariableException(expression));
-                if (value == null)
-                    hasNullValue = true;
-                else
-                    out.append(value);
-            }
-            tail = matcher.end();
-        }
-        out.append(line.substring(tail));
-        return (hasNullValue && out.length() == 0) ? null : out.toString();
+        return TEMPLATES.getUnchecked(line).evaluate(this, alternative);
     }
 
-    private String groupOneOr(Matcher matcher, String alternative) {
-        String expression = matcher.group(1);
-        if (alternative != null)
-            expression += " or " + alternative;
-        return expression;
-    }
+    /**
+     * Variable values are often credentials, so they are compiled every time they are used, and not cached in the
+     * static templates that live as long as the application, like the lines of the plans.
+     */
+    private String resolveValue(String value) { return Template.compile(value).evaluate(this, "null"); }
 
-    public Resolver resolver() {
-        ImmutableList.Builder<Resolver> resolvers = ImmutableList.builder();
-        resolvers.add(new NullResolver());
-        resolvers.add(new BooleanResolver());
-        resolvers.add(new SwitchResolver());
-        resolvers.add(new LiteralResolver());
-        resolvers.add(new FunctionResolver());
-        resolvers.add(new RootBundleResolver());
-        resolvers.add(new VariableResolver());
-        if (finalResolver != null)
-            resolvers.add(finalResolver);
-        return new OrResolver(resolvers.build());
-    }
+    @VisibleForTesting static boolean isCached(String line) { return TEMPLATES.getIfPresent(line) != null; }
+
+    public Resolver resolver() { return expression -> match(compile(expression)); }
 
     public interface Resolver {
         Match match(String expression);
@@ -187,65 +159,193 @@ public class Expressions {
         String getValueOrNull() { return (mode == matches) ? value : null; }
     }
 
-    @RequiredArgsConstructor
-    private static class OrResolver implements Resolver {
-        private final ImmutableList<Resolver> resolvers;
-
-        @Override public Match match(String expression) {
-            for (String subExpression : split(expression, " or ")) {
-                log.trace("try to resolve variable expression [{}]", subExpression);
-                resolvers:
-                for (Resolver resolver : resolvers) {
-                    Match match = resolver.match(subExpression);
-                    switch (match.mode) {
-                    case matches:
-                        return match;
-                    case stop:
-                        break resolvers;
-                    case proceed:
-                        //noinspection UnnecessaryContinue
-                        continue resolvers;
-                    }
+    /** The alternatives are tried in order; the final resolver gets a chance for every term that doesn't match */
+    private Match match(CompiledExpression expression) {
+        for (Term term : expression.getTerms()) {
+            log.trace("try to resolve variable expression [{}]", term.getSource());
+            Match match = term.evaluate(this);
+            if (match.mode == proceed && finalResolver != null)
+                match = finalResolver.match(term.getSource());
+            if (match.mode == matches)
+                return match;
+        }
+        return Match.PROCEED;
+    }
+
+
+    private static final int CACHE_SIZE = 10_000;
+    private static final LoadingCache<String, Template> TEMPLATES = CacheBuilder
+            .newBuilder().maximumSize(CACHE_SIZE).build(CacheLoader.from(Template::compile));
+    private static final LoadingCache<String, CompiledExpression> EXPRESSIONS = CacheBuilder
+            .newBuilder().maximumSize(CACHE_SIZE).build(CacheLoader.from(CompiledExpression::compile));
+    private static final CipherFacade CIPHER = new CipherFacade();
+
+    private static CompiledExpression compile(String expression) { return EXPRESSIONS.getUnchecked(expression); }
+
+    /** A line split into literal text and the expressions within `${` and `}` */
+    @Value
+    private static class Template {
+        static Template compile(String line) {
+            if (line.contains("#"))
+                line = line.substring(0, line.indexOf('#'));
+            ImmutableList.Builder<Segment> segments = ImmutableList.builder();
+            Matcher matcher = VAR.matcher(line);
+            int tail = 0;
+            while (matcher.find()) {
+                String text = line.substring(tail, matcher.start());
+                if (matcher.start() > 0 && line.charAt(matcher.start() - 1) == '$') {
+                    // +1 to skip the var-$ as we already copied the escape-$
+                    segments.add(new Text(text + line.substring(matcher.start() + 1, matcher.end())));
+                } else {
+                    segments.add(new Text(text));
+                    segments.add(new Placeholder(matcher.group(1)));
                 }
+                tail = matcher.end();
+            }
+            segments.add(new Text(line.substring(tail)));
+            return new Template(segments.build());
+        }
+
+        ImmutableList<Segment> segments;
+
+        String evaluate(Expressions expressions, String alternative) {
+            StringBuilder out = new StringBuilder();
+            boolean hasNullValue = false;
+            for (Segment segment : segments) {
+                String value = segment.evaluate(expressions, alternative);
+                if (value == null)
+                    hasNullValue = true;
+                else
+                    out.append(value);
             }
-            return Match.PROCEED;
+            return (hasNullValue && out.length() == 0) ? null : out.toString();
         }
     }
 
+    private interface Segment {
+        String evaluate(Expressions expressions, String alternative);
+    }
+
+    @Value
+    private static class Text implements Segment {
+        String text;
+
+        @Override public String evaluate(Expressions expressions, String alternative) { return text; }
+    }
+
+    @Value
+    private static class Placeholder implements Segment {
+        String source;
+        CompiledExpression expression;
+        /** the most common alternative */
+        CompiledExpression orNull;
+
+        Placeholder(String source) {
+            this.source = source;
+            this.expression = compile(source);
+            this.orNull = compile(source + " or null");
+        }
 
-    private static class NullResolver implements Resolver {
-        @Override public Match match(String expression) {
-            return "null".equals(expression) ? Match.of((String) null) : Match.PROCEED;
+        @Override public String evaluate(Expressions expressions, String alternative) {
+            CompiledExpression compiled = (alternative == null) ? expression
+                    : "null".equals(alternative) ? orNull
+                    : compile(source + " or " + alternative);
+            return expressions.match(compiled)
+                              .orElseThrow(() -> new UnresolvedVariableException(compiled.getSource()));
         }
     }
 
+    /** The alternatives separated by ` or ` */
+    @Value
+    private static class CompiledExpression {
+        static CompiledExpression compile(String source) {
+            return new CompiledExpression(source, ImmutableList.copyOf(split(source, " or ")
+                    .stream()
+                    .map(Term::compile)
+                    .collect(toList())));
+        }
 
-    private static class BooleanResolver implements Resolver {
-        @Override public Match match(String expression) {
-            return ("true".equals(expression) || "false".equals(expression)) ? Match.of(expression) : Match.PROCEED;
+        String source;
+        ImmutableList<Term> terms;
+    }
+
+    /**
+     * What kind of term an alternative is depends only on its text, so it's decided when compiling. The order of the
+     * checks defines the precedence, e.g. `null` is not a variable name.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static abstract class Term {
+        static Term compile(String expression) {
+            if ("null".equals(expression))
+                return new Constant(expression, Match.of((String) null));
+            if ("true".equals(expression) || "false".equals(expression))
+                return new Constant(expression, Match.of(expression));
+            if (expression.startsWith("switch"))
+                return new Switch(expression);
+            Optional<String> literal = findBrackets("«»", expression);
+            if (literal.isPresent())
+                return new Constant(expression, Match.of(literal.get()));
+            Matcher function = FUNCTION.matcher(expression);
+            if (function.matches())
+                return new FunctionCall(expression, function.group("name"), function.group("body"));
+            if (expression.startsWith(ROOT_BUNDLE))
+                return new RootBundleField(expression);
+            if (NAME_TOKEN.matcher(expression).matches())
+                return new Variable(expression);
+            return new Unknown(expression);
         }
+
+        private final String source;
+
+        abstract Match evaluate(Expressions expressions);
     }
 
 
-    private class SwitchResolver implements Resolver {
-        @Override public Match match(String expression) {
-            if (!expression.startsWith("switch"))
-                return Match.PROCEED;
-            return Match.of(doSwitch(expression.substring(6)));
+    private static class Constant extends Term {
+        private final Match match;
+
+        private Constant(String source, Match match) {
+            super(source);
+            this.match = match;
+        }
+
+        @Override Match evaluate(Expressions expressions) { return match; }
+    }
+
+
+    /** Only the final resolver may know what to do with this */
+    private static class Unknown extends Term {
+        private Unknown(String source) { super(source); }
+
+        @Override Match evaluate(Expressions expressions) { return Match.PROCEED; }
+    }
+
+
+    private static class Switch extends Term {
+        private final String headSource;
+        private final CompiledExpression head;
+        private final String body;
+
+        private Switch(String source) {
+            super(source);
+            String expression = source.substring(6);
+            this.headSource = findBrackets("()", expression).orElse(null);
+            this.head = (headSource == null) ? null : compile(headSource);
+            this.body = (headSource == null) ? null : expression.substring(headSource.length() + 2);
         }
 
-        private String doSwitch(String expression) {
-            String head = findBrackets("()", expression)
-                    .orElseThrow(() -> new IllegalArgumentException("unmatched brackets for switch statement"));
-            String value = resolver().match(head).orElseThrow(() ->
-                    new IllegalArgumentException("no variable defined in switch header: '" + head + "'"));
-            String body = expression.substring(head.length() + 2, expression.length());
+        @Override Match evaluate(Expressions expressions) {
+            if (head == null)
+                throw new IllegalArgumentException("unmatched brackets for switch statement");
+            String value = expressions.match(head).orElseThrow(() ->
+                    new IllegalArgumentException("no variable defined in switch header: '" + headSource + "'"));
             int i = body.indexOf(" " + value + ":");
             if (i < 0)
                 throw new IllegalArgumentException("no case label for '" + value + "' in switch statement");
             String rest = body.substring(i + value.length() + 2, body.length()).trim();
-            return findBrackets("«»", rest)
-                    .orElseThrow(() -> new IllegalArgumentException("unmatched brackets for switch literal"));
+            return Match.of(findBrackets("«»", rest)
+                    .orElseThrow(() -> new IllegalArgumentException("unmatched brackets for switch literal")));
         }
     }
 
@@ -273,28 +373,23 @@ public class Expressions {
     }
 
 
-    private static class LiteralResolver implements Resolver {
-        @Override public Match match(String expression) {
-            return Match.of(findBrackets("«»", expression));
-        }
-    }
+    private static class Variable extends Term {
+        private final VariableName name;
 
+        private Variable(String source) {
+            super(source);
+            this.name = new VariableName(source);
+        }
 
-    private class VariableResolver implements Resolver {
-        @Override public Match match(String expression) {
-            Matcher matcher = NAME_TOKEN.matcher(expression);
-            if (!matcher.matches())
-                return Match.PROCEED;
-            VariableName variableName = new VariableName(matcher.group());
-            if (variables.containsKey(variableName)) {
-                String value = resolve(variables.get(variableName), "null");
-                if (value != null && !VARIABLE_VALUE.matcher(value).matches())
-                    throw badRequest("invalid character in variable value for [" + variableName + "]");
-                return Match.of(value);
-            } else {
-                log.trace("undefined variable [{}]", expression);
+        @Override Match evaluate(Expressions expressions) {
+            if (!expressions.variables.containsKey(name)) {
+                log.trace("undefined variable [{}]", name);
                 return Match.PROCEED;
             }
+            String value = expressions.resolveValue(expressions.variables.get(name));
+            if (value != null && !VARIABLE_VALUE.matcher(value).matches())
+                throw badRequest("invalid character in variable value for [" + name + "]");
+            return Match.of(value);
         }
     }
 
@@ -306,104 +401,97 @@ public class Expressions {
             "classifier", c -> (c.getClassifier() == null) ? null : c.getClassifier().getValue(),
             "version", c -> (c.getVersion() == null) ? null : c.getVersion().getValue());
 
-    private class RootBundleResolver implements Resolver {
-        @Override public Match match(String expression) {
-            if (!expression.startsWith(ROOT_BUNDLE))
-                return Match.PROCEED;
-            String fieldName = expression.substring(ROOT_BUNDLE.length());
-            if (!BUNDLE.containsKey(fieldName))
-                throw new IllegalArgumentException("undefined root-bundle expression: [" + expression + "]");
-            if (rootBundleConfig == null)
+    private static class RootBundleField extends Term {
+        private final Function<RootBundleConfig, String> field;
+
+        private RootBundleField(String source) {
+            super(source);
+            this.field = BUNDLE.get(source.substring(ROOT_BUNDLE.length()));
+        }
+
+        @Override Match evaluate(Expressions expressions) {
+            if (field == null)
+                throw new IllegalArgumentException("undefined root-bundle expression: [" + getSource() + "]");
+            if (expressions.rootBundleConfig == null)
                 return Match.STOP;
-            String subExpression = BUNDLE.get(fieldName).apply(rootBundleConfig);
+            String subExpression = field.apply(expressions.rootBundleConfig);
             if (subExpression == null)
                 return Match.STOP;
-            return Match.of(Expressions.this.resolve(subExpression));
+            return Match.of(expressions.resolve(subExpression));
         }
-
     }
 
+
     private static final Pattern FUNCTION = Pattern.compile("(?<name>" + NAME_TOKEN + ")" + "(\\((?<body>.*)\\))");
 
-    private class FunctionResolver implements Resolver {
-        private final CipherFacade cipher = new CipherFacade();
+    private static class FunctionCall extends Term {
+        private final String functionName;
+        private final ImmutableList<CompiledExpression> params;
+        private final String signature;
 
-        @Override public Match match(String expression) {
-            Matcher matcher = FUNCTION.matcher(expression);
-            if (!matcher.matches())
-                return Match.PROCEED;
-            return new FunctionMatch(matcher.group("name"), params(matcher.group("body"))).match();
+        private FunctionCall(String source, String functionName, String body) {
+            super(source);
+            this.functionName = functionName;
+            this.params = ImmutableList.copyOf(split(body, ",")
+                    .stream()
+                    .map(String::trim)
+                    .map(Expressions::compile)
+                    .collect(toList()));
+            this.signature = functionName + "#" + params.size();
         }
 
-        @Value
-        private class FunctionMatch {
-            private final String functionName;
-            private final List<Supplier<String>> params;
-
-            private Match match() {
-                log.trace("found function name [{}] with {} params", functionName, params.size());
-                switch (functionName + "#" + params.size()) {
-                case "hostName#0":
-                    return Match.of(hostName());
-                case "domainName#0":
-                    return Match.of(domainName());
-                case "toUpperCase#1":
-                    return apply1(s -> s.toUpperCase(US));
-                case "toLowerCase#1":
-                    return apply1(s -> s.toLowerCase(US));
-                case "toInitCap#1":
-                    return apply1(this::toInitCap);
-                case "decrypt#1":
-                    return apply1(this::decrypt);
-                case "decrypt#2":
-                    return apply2(this::decrypt);
-                case "regex#2":
-                    return applyRegex();
-                default:
-                    throw badRequest("undefined function [" + functionName + "] with " + params.size() + " params");
-                }
+        @Override Match evaluate(Expressions expressions) {
+            log.trace("found function name [{}] with {} params", functionName, params.size());
+            switch (signature) {
+            case "hostName#0":
+                return Match.of(hostName());
+            case "domainName#0":
+                return Match.of(domainName());
+            case "toUpperCase#1":
+                return apply1(expressions, s -> s.toUpperCase(US));
+            case "toLowerCase#1":
+                return apply1(expressions, s -> s.toLowerCase(US));
+            case "toInitCap#1":
+                return apply1(expressions, FunctionCall::toInitCap);
+            case "decrypt#1":
+                return apply1(expressions, text -> CIPHER.decrypt(text, expressions.keyStore));
+            case "decrypt#2":
+                return apply2(expressions, (text, alias) ->
+                        CIPHER.decrypt(text, expressions.keyStore.withAlias(alias)));
+            case "regex#2":
+                return applyRegex(expressions);
+            default:
+                throw badRequest("undefined function [" + functionName + "] with " + params.size() + " params");
             }
+        }
 
-            private Match apply1(Function<String, String> function) {
-                return Match.of(param(0).map(function));
-            }
-
-            private Match apply2(BiFunction<String, String, String> function) {
-                Optional<String> param0 = param(0);
-                Optional<String> param1 = param(1);
-                return (param0.isPresent() && param1.isPresent())
-                        ? Match.of(function.apply(param0.get(), param1.get()))
-                        : Match.PROCEED;
-            }
-
-            private Optional<String> param(int index) { return Optional.ofNullable(params.get(index).get()); }
-
-            private String toInitCap(String text) {
-                return (text.length() == 0) ? "" : (Character.toUpperCase(text.charAt(0)) + text.substring(1));
-            }
+        private Match apply1(Expressions expressions, Function<String, String> function) {
+            return Match.of(param(expressions, 0).map(function));
+        }
 
-            private String decrypt(String text) { return cipher.decrypt(text, keyStore); }
+        private Match apply2(Expressions expressions, BiFunction<String, String, String> function) {
+            Optional<String> param0 = param(expressions, 0);
+            Optional<String> param1 = param(expressions, 1);
+            return (param0.isPresent() && param1.isPresent())
+                    ? Match.of(function.apply(param0.get(), param1.get()))
+                    : Match.PROCEED;
+        }
 
-            private String decrypt(String text, String alias) {
-                return cipher.decrypt(text, keyStore.withAlias(alias));
-            }
+        private Optional<String> param(Expressions expressions, int index) {
+            return Optional.ofNullable(expressions.match(params.get(index)).getValue());
+        }
 
-            private Match applyRegex() {
-                Optional<String> text = param(0);
-                Optional<Pattern> pattern = param(1).map(Pattern::compile);
-                if (!text.isPresent() || !pattern.isPresent())
-                    return Match.PROCEED;
-                Matcher matcher = pattern.get().matcher(text.get());
-                return matcher.matches() ? Match.of(matcher.group(1)) : Match.PROCEED;
-            }
+        private static String toInitCap(String text) {
+            return (text.length() == 0) ? "" : (Character.toUpperCase(text.charAt(0)) + text.substring(1));
         }
 
-        private List<Supplier<String>> params(CharSequence body) {
-            return split(body, ",")
-                    .stream()
-                    .map(String::trim)
-                    .map(expression -> (Supplier<String>) () -> resolver().match(expression).getValue())
-                    .collect(toList());
+        private Match applyRegex(Expressions expressions) {
+            Optional<String> text = param(expressions, 0);
+            Optional<Pattern> pattern = param(expressions, 1).map(Pattern::compile);
+            if (!text.isPresent() || !pattern.isPresent())
+                return Match.PROCEED;
+            Matcher matcher = pattern.get().matcher(text.get());
+            return matcher.matches() ? Match.of(matcher.group(1)) : Match.PROCEED;
         }
     }
 
@@ -43,35 +43,35 @@ public final class LogHandlerPlan implements AbstractPlan {
 
     @Override public String getId() { return name.getValue(); }
 
-    static LogHandlerPlan fromJson(LogHandlerName name, JsonNode node) {
+    static LogHandlerPlan fromJson(Expressions expressions, LogHandlerName name, JsonNode node) {
         LogHandlerPlanBuilder builder = builder().name(name);
-        apply(node, "state", builder::state, DeploymentState::valueOf);
-        apply(node, "level", builder::level, LogLevel::valueOf, "«ALL»");
-        apply(node, "type", builder::type, LogHandlerType::valueOfTypeName,
+        apply(expressions, node, "state", builder::state, DeploymentState::valueOf);
+        apply(expressions, node, "level", builder::level, LogLevel::valueOf, "«ALL»");
+        apply(expressions, node, "type", builder::type, LogHandlerType::valueOfTypeName,
                 "default.log-handler-type or «" + periodicRotatingFile + "»");
-        if (node.has("format") || (!node.has("formatter") && !Plan.expressions.contains(DEFAULT_LOG_FORMATTER)))
-            apply(node, "format", builder::format, identity(), "default.log-format or null");
-        apply(node, "formatter", builder::formatter, identity(), "default.log-formatter");
-        apply(node, "encoding", builder::encoding, identity(), "default.log-encoding");
-        applyByType(node, builder);
+        if (node.has("format") || (!node.has("formatter") && !expressions.contains(DEFAULT_LOG_FORMATTER)))
+            apply(expressions, node, "format", builder::format, identity(), "default.log-format or null");
+        apply(expressions, node, "formatter", builder::formatter, identity(), "default.log-formatter");
+        apply(expressions, node, "encoding", builder::encoding, identity(), "default.log-encoding");
+        applyByType(expressions, node, builder);
         return builder.build().validate();
     }
 
-    private static void applyByType(JsonNode node, LogHandlerPlanBuilder builder) {
+    private static void applyByType(Expressions expressions, JsonNode node, LogHandlerPlanBuilder builder) {
         switch (builder.type) {
         case console:
             // nothing more to load here
             return;
         case periodicRotatingFile:
-            apply(node, "file", builder::file, identity(),
+            apply(expressions, node, "file", builder::file, identity(),
                     "«" + (builder.name.getValue().toLowerCase() + ".log") + "»");
-            applySuffix(node, builder, true);
+            applySuffix(expressions, node, builder, true);
             return;
         case custom:
-            apply(node, "file", builder::file, identity(), null);
-            applySuffix(node, builder, false);
-            apply(node, "module", builder::module, identity());
-            apply(node, "class", builder::class_, identity());
+            apply(expressions, node, "file", builder::file, identity(), null);
+            applySuffix(expressions, node, builder, false);
+            apply(expressions, node, "module", builder::module, identity());
+            apply(expressions, node, "class", builder::class_, identity());
             if (node.has("properties") && !node.get("properties").isNull())
                 node.get("properties").fieldNames().forEachRemaining(fieldName ->
                         builder.property(
@@ -83,8 +83,9 @@ public final class LogHandlerPlan implements AbstractPlan {
                 + " in [" + builder.name + "]");
     }
 
-    private static void applySuffix(JsonNode node, LogHandlerPlanBuilder builder, boolean defaultSuffix) {
-        apply(node, "suffix", builder::suffix, identity(),
+    private static void applySuffix(Expressions expressions, JsonNode node, LogHandlerPlanBuilder builder,
+            boolean defaultSuffix) {
+        apply(expressions, node, "suffix", builder::suffix, identity(),
                 "default.log-file-suffix" + (defaultSuffix ? " or «" + DEFAULT_SUFFIX + "»" : ""));
     }
 
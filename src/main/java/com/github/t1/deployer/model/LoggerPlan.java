@@ -30,26 +30,26 @@ public final class LoggerPlan implements Plan.AbstractPlan {
 
     @Override public String getId() { return category.getValue(); }
 
-    static LoggerPlan fromJson(LoggerCategory category, JsonNode node) {
+    static LoggerPlan fromJson(Expressions expressions, LoggerCategory category, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete loggers plan '" + category + "'");
         LoggerPlanBuilder builder = builder().category(category);
-        apply(node, "state", builder::state, DeploymentState::valueOf);
-        apply(node, "level", builder::level, LogLevel::valueOf, "default.log-level or «DEBUG»");
-        applyHandlers(node, builder);
-        apply(node, "use-parent-handlers", builder::useParentHandlers, Boolean::valueOf);
+        apply(expressions, node, "state", builder::state, DeploymentState::valueOf);
+        apply(expressions, node, "level", builder::level, LogLevel::valueOf, "default.log-level or «DEBUG»");
+        applyHandlers(expressions, node, builder);
+        apply(expressions, node, "use-parent-handlers", builder::useParentHandlers, Boolean::valueOf);
         return builder.build().validate();
     }
 
-    private static void applyHandlers(JsonNode node, LoggerPlanBuilder builder) {
+    private static void applyHandlers(Expressions expressions, JsonNode node, LoggerPlanBuilder builder) {
         if (node.has("handler")) {
             if (node.has("handlers"))
                 throw new Plan.PlanLoadingException("Can't have 'handler' _and_ 'handlers'");
-            apply(node, "handler", builder::handler, identity());
+            apply(expressions, node, "handler", builder::handler, identity());
         } else if (node.has("handlers")) {
             Iterator<JsonNode> handlers = node.get("handlers").elements();
             while (handlers.hasNext())
-                builder.handler(Plan.expressions.resolve(handlers.next().textValue()));
+                builder.handler(expressions.resolve(handlers.next().textValue()));
         }
     }
 
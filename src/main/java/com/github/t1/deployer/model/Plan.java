@@ -11,7 +11,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.Callable;
 import java.util.function.*;
 import java.util.stream.Stream;
 
@@ -52,46 +51,49 @@ public final class Plan {
 
     private static final Plan EMPTY_PLAN = Plan.builder().build();
 
-    static Expressions expressions = null;
-
+    /**
+     * The {@link Expressions} are passed to the {@link #fromJson(JsonNode, Expressions) creator} as an injectable
+     * value, so plans can be loaded concurrently, each with its own variables.
+     */
     public static Plan load(@NotNull Expressions expressions, Reader reader, String sourceMessage) {
-        return Plan.with(expressions, sourceMessage, () -> {
-            Plan plan = YAML.readValue(reader, Plan.class);
+        try {
+            Plan plan = YAML.readerFor(Plan.class)
+                            .with(new InjectableValues.Std().addValue(Expressions.class, expressions))
+                            .readValue(reader);
             if (plan == null)
                 plan = EMPTY_PLAN;
             log.debug("plan loaded from {}:\n{}", sourceMessage, plan);
             return plan;
-        });
-    }
-
-    public static synchronized Plan with(Expressions expressions, String sourceMessage, Callable<Plan> callable) {
-        assert Plan.expressions == null : "can not reenter Plan#load";
-        Plan.expressions = expressions;
-        try {
-            return callable.call();
         } catch (Exception e) {
             throw new PlanLoadingException("exception while loading plan from " + sourceMessage, e);
-        } finally {
-            Plan.expressions = null;
         }
     }
 
-    @JsonCreator public static Plan fromJson(JsonNode json) {
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Plan fromJson(JsonNode json, @JacksonInject Expressions expressions) {
         PlanBuilder builder = builder();
-        readAll(json.get("log-handlers"), LogHandlerName::new, LogHandlerPlan::fromJson, builder::logHandler);
-        readAll(json.get("loggers"), LoggerCategory::of, LoggerPlan::fromJson, builder::logger);
-        readAll(json.get("data-sources"), DataSourceName::new, DataSourcePlan::fromJson, builder::dataSource);
-        readAll(json.get("deployables"), DeploymentName::new, DeployablePlan::fromJson, builder::deployable);
-        readAll(json.get("bundles"), BundleName::new, BundlePlan::fromJson, builder::bundle);
+        readAll(expressions, json.get("log-handlers"), LogHandlerName::new, LogHandlerPlan::fromJson,
+                builder::logHandler);
+        readAll(expressions, json.get("loggers"), LoggerCategory::of, LoggerPlan::fromJson, builder::logger);
+        readAll(expressions, json.get("data-sources"), DataSourceName::new, DataSourcePlan::fromJson,
+                builder::dataSource);
+        readAll(expressions, json.get("deployables"), DeploymentName::new, DeployablePlan::fromJson,
+                builder::deployable);
+        readAll(expressions, json.get("bundles"), BundleName::new, BundlePlan::fromJson, builder::bundle);
         return builder.build();
     }
 
-    private static <K, V> void readAll(JsonNode jsonNode, Function<String, K> toKey, BiFunction<K, JsonNode, V> toPlan,
-            Consumer<V> consumer) {
+    private static <K, V> void readAll(Expressions expressions, JsonNode jsonNode, Function<String, K> toKey,
+            PlanReader<K, V> toPlan, Consumer<V> consumer) {
         if (jsonNode != null)
             jsonNode.fieldNames().forEachRemaining(
-                    name -> consumer.accept(
-                            toPlan.apply(toKey.apply(expressions.resolve(name, null)), jsonNode.get(name))));
+                    name -> consumer.accept(toPlan.read(expressions,
+                            toKey.apply(expressions.resolve(name, null)), jsonNode.get(name))));
+    }
+
+    @FunctionalInterface
+    private interface PlanReader<K, V> {
+        V read(Expressions expressions, K key, JsonNode node);
     }
 
     @NonNull @JsonProperty private final Map<LogHandlerName, LogHandlerPlan> logHandlers;
@@ -150,12 +152,13 @@ public final class Plan {
     }
 
 
-    static <T> void apply(JsonNode node, String fieldName, Consumer<T> setter, Function<String, T> convert) {
-        apply(node, fieldName, setter, convert, null);
+    static <T> void apply(Expressions expressions, JsonNode node, String fieldName, Consumer<T> setter,
+            Function<String, T> convert) {
+        apply(expressions, node, fieldName, setter, convert, null);
     }
 
-    static <T> void apply(JsonNode node, String fieldName, Consumer<T> setter, Function<String, T> convert,
-            String alternativeExpression) {
+    static <T> void apply(Expressions expressions, JsonNode node, String fieldName, Consumer<T> setter,
+            Function<String, T> convert, String alternativeExpression) {
         String value = (node.has(fieldName) && !node.get(fieldName).isNull())
                 ? expressions.resolve(node.get(fieldName).asText(), alternativeExpression)
                 : null;
@@ -4,10 +4,12 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.*;
+import lombok.experimental.NonFinal;
 import org.jetbrains.annotations.NotNull;
 
 import javax.xml.bind.annotation.*;
 import java.util.Comparator;
+import java.util.regex.Pattern;
 
 import static lombok.AccessLevel.*;
 
@@ -20,6 +22,8 @@ public class Version implements Comparable<Version> {
     @XmlValue
     private final String value;
 
+    private static final Pattern SPLIT = Pattern.compile("[.-]");
+
     @JsonCreator
     public Version(@NonNull String value) { this.value = value; }
 
@@ -39,48 +43,116 @@ public class Version implements Comparable<Version> {
     @Override
     public int compareTo(@NotNull Version that) { return COMPARATOR.compare(this, that); }
 
-    public static final Comparator<Version> COMPARATOR = new Comparator<Version>() {
-        @Override
-        public int compare(Version thisVersion, Version thatVersion) {
-            String[] thisParts = split(thisVersion.value);
-            String[] thatParts = split(thatVersion.value);
-            int i;
-            for (i = 0; i < thisParts.length; i++) {
-                String thisPart = thisParts[i];
-                if (thatParts.length < i + 1)
-                    return compareTrailing(thisPart);
-                String thatPart = thatParts[i];
-
-                if (thisPart.equals(thatPart))
-                    continue;
-
-                if (isNumeric(thisPart)) {
-                    if (isNumeric(thatPart)) {
-                        Integer thisInt = Integer.valueOf(thisPart);
-                        Integer thatInt = Integer.valueOf(thatPart);
-                        int c = thisInt.compareTo(thatInt);
-                        if (c == 0)
-                            continue;
-                        return c;
-                    }
-                    return 1; // numbers are always bigger than strings
-                }
-                if (isNumeric(thatPart))
-                    return -1; // strings are always smaller than numbers
-                return thisPart.compareToIgnoreCase(thatPart);
+    /**
+     * The parts of the version split at <code>.</code> and <code>-</code>: numbers are always bigger than strings;
+     * when one version has more parts, a trailing number makes it bigger (e.g. <code>1.0.1</code>), while a trailing
+     * string makes it smaller (e.g. <code>1.0-SNAPSHOT</code>).
+     */
+    public static final Comparator<Version> COMPARATOR = (thisVersion, thatVersion) ->
+            thisVersion.key().compareTo(thatVersion.key());
+
+    /** parsed lazily, but only once; concurrent parsing is harmless, as the key is immutable */
+    @Getter(NONE) @NonFinal private transient Key key;
+
+    private Key key() {
+        Key key = this.key;
+        if (key == null)
+            this.key = key = new Key(value);
+        return key;
+    }
+
+    /**
+     * The compact, pre-parsed form of a version, so comparing doesn't have to split, match, or box anything.
+     * A number part that fits into a <code>long</code> is stored in <code>numbers</code>; a bigger number part is
+     * stored with leading zeros removed in <code>texts</code>, as are all non-numeric parts.
+     */
+    private static final class Key implements Comparable<Key> {
+        private static final int MAX_LONG_DIGITS = 18;
+
+        private static final byte TEXT = 0;
+        private static final byte NUMBER = 1;
+        private static final byte BIG_NUMBER = 2;
+
+        private final byte[] kinds;
+        private final long[] numbers;
+        private final String[] texts;
+
+        private Key(String version) {
+            String[] parts = SPLIT.split(version);
+            this.kinds = new byte[parts.length];
+            this.numbers = new long[parts.length];
+            this.texts = new String[parts.length];
+            for (int i = 0; i < parts.length; i++)
+                parse(i, parts[i]);
+        }
+
+        private void parse(int i, String part) {
+            if (!isNumeric(part)) {
+                kinds[i] = TEXT;
+                texts[i] = part;
+                return;
+            }
+            int start = 0;
+            while (start < part.length() - 1 && part.charAt(start) == '0')
+                start++;
+            if (part.length() - start <= MAX_LONG_DIGITS) {
+                kinds[i] = NUMBER;
+                numbers[i] = Long.parseLong(part.substring(start));
+            } else {
+                kinds[i] = BIG_NUMBER;
+                texts[i] = part.substring(start);
+            }
+        }
+
+        private static boolean isNumeric(String part) {
+            if (part.isEmpty())
+                return false;
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (c < '0' || c > '9')
+                    return false;
             }
-            if (thatParts.length > i)
-                return -compareTrailing(thatParts[i]);
+            return true;
+        }
+
+        @Override public int compareTo(@NotNull Key that) {
+            int common = Math.min(this.kinds.length, that.kinds.length);
+            for (int i = 0; i < common; i++) {
+                int c = comparePart(that, i);
+                if (c != 0)
+                    return c;
+            }
+            if (this.kinds.length > common)
+                return compareTrailing(this.kinds[common]);
+            if (that.kinds.length > common)
+                return -compareTrailing(that.kinds[common]);
             return 0;
         }
 
-        private String[] split(String thisVersion) { return thisVersion.split("[.-]"); }
+        private int comparePart(Key that, int i) {
+            byte thisKind = this.kinds[i];
+            byte thatKind = that.kinds[i];
+            if (thisKind == TEXT) {
+                if (thatKind == TEXT)
+                    return this.texts[i].compareToIgnoreCase(that.texts[i]);
+                return -1; // strings are always smaller than numbers
+            }
+            if (thatKind == TEXT)
+                return 1; // numbers are always bigger than strings
+            if (thisKind == NUMBER && thatKind == NUMBER)
+                return Long.compare(this.numbers[i], that.numbers[i]);
+            if (thisKind != thatKind)
+                return (thisKind == BIG_NUMBER) ? 1 : -1;
+            String thisDigits = this.texts[i];
+            String thatDigits = that.texts[i];
+            if (thisDigits.length() != thatDigits.length())
+                return Integer.compare(thisDigits.length(), thatDigits.length());
+            return thisDigits.compareTo(thatDigits);
+        }
 
         /** .1 is bigger; SNAPSHOT is smaller */
-        private int compareTrailing(String part) { return isNumeric(part) ? 1 : -1; }
-
-        private boolean isNumeric(String string) { return string.matches("\\d+"); }
-    };
+        private static int compareTrailing(byte kind) { return (kind == TEXT) ? -1 : 1; }
+    }
 
     public boolean matches(String pattern) { return this.compareTo(new Version(pattern)) == 0; }
 }
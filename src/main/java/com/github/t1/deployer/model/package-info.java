@@ -7,6 +7,7 @@
         com.fasterxml.jackson.core.JsonGenerator.class,
         com.fasterxml.jackson.databind.ObjectMapper.class,
         com.fasterxml.jackson.dataformat.yaml.YAMLFactory.class,
+        com.google.common.cache.CacheBuilder.class,
         com.google.common.collect.ImmutableMap.class,
 })
 package com.github.t1.deployer.model;
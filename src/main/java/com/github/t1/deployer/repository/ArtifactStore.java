@@ -0,0 +1,127 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Metrics;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.github.t1.problem.WebException.*;
+import static java.nio.file.StandardCopyOption.*;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Comparator.*;
+import static java.util.stream.Collectors.*;
+import static javax.ws.rs.core.Response.Status.*;
+
+/**
+ * A local, content-addressed store for downloaded artifacts: the files are named by their checksum, so an artifact is
+ * only ever downloaded once, e.g. when rolling back to a previous version. The checksum is verified while the download
+ * is written to disk. When the store grows beyond its maximum size, the least recently used files are removed.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class ArtifactStore {
+    static final long DEFAULT_MAX_MEGABYTES = 1024;
+    private static final String TEMP_SUFFIX = ".part";
+
+    @NonNull private final Path dir;
+    private final long maxBytes;
+
+    public InputStream open(Artifact artifact) {
+        Checksum checksum = artifact.getChecksum();
+        if (checksum == null || checksum.isEmpty()) {
+            log.debug("no checksum to store {}", artifact);
+            return artifact.getInputStream();
+        }
+        Path path = pathOf(checksum);
+        if (Files.isRegularFile(path)) {
+            log.debug("found {} in local store", artifact);
+            touch(path);
+        } else {
+            download(artifact, checksum, path);
+            evict(path);
+        }
+        return ChecksumInputStream.verified(checksum, read(path));
+    }
+
+    private Path pathOf(Checksum checksum) { return dir.resolve(checksum.toString()); }
+
+    @SneakyThrows(IOException.class)
+    private static InputStream read(Path path) { return Channels.newInputStream(FileChannel.open(path, READ)); }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("can't touch {}: {}", path, e.toString());
+        }
+    }
+
+    @SneakyThrows(IOException.class)
+    private void download(Artifact artifact, Checksum checksum, Path path) {
+        log.debug("download {} to local store", artifact);
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, checksum.toString(), TEMP_SUFFIX);
+        try {
+            Checksum actual;
+            try (Metrics.Timing timing = Metrics.time("repository.download").attribute("artifact", artifact);
+                 ChecksumInputStream inputStream = ChecksumInputStream.like(checksum, artifact.getInputStream())) {
+                timing.attribute("bytes", Files.copy(inputStream, temp, REPLACE_EXISTING));
+                actual = inputStream.getChecksum();
+            }
+            if (!actual.equals(checksum))
+                throw builderFor(BAD_GATEWAY)
+                        .detail("checksum mismatch while downloading " + artifact
+                                + ": expected [" + checksum + "] but got [" + actual + "]")
+                        .build();
+            Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** synchronized, so concurrent downloads don't delete more than necessary */
+    @SneakyThrows(IOException.class)
+    private synchronized void evict(Path keep) {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(file -> !file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                        .sorted(comparing(ArtifactStore::lastModified))
+                        .collect(toList());
+        }
+        long total = files.stream().mapToLong(ArtifactStore::size).sum();
+        for (Iterator<Path> iterator = files.iterator(); total > maxBytes && iterator.hasNext(); ) {
+            Path file = iterator.next();
+            if (file.equals(keep))
+                continue;
+            long size = size(file);
+            log.debug("evict {} from local store", file.getFileName());
+            Files.deleteIfExists(file);
+            total -= size;
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override public String toString() { return "ArtifactStore[" + dir + ":" + maxBytes + "]"; }
+}
@@ -0,0 +1,46 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Decorates a {@link Repository}, so the input streams of deployable artifacts are served from a local
+ * {@link ArtifactStore}. Bundles are small and resolved dynamically, so they are passed through.
+ */
+@RequiredArgsConstructor
+class ArtifactStoreRepository extends Repository {
+    @NonNull @Getter private final Repository delegate;
+    @NonNull private final ArtifactStore store;
+
+    @Override public Artifact searchByChecksum(Checksum checksum) { return stored(delegate.searchByChecksum(checksum)); }
+
+    @Override protected Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+            ArtifactType type, Classifier classifier) {
+        return stored(delegate.lookupArtifact(groupId, artifactId, version, type, classifier));
+    }
+
+    private Artifact stored(Artifact artifact) {
+        if (artifact.getError() != null || !isDeployable(artifact.getType()))
+            return artifact;
+        return artifact.toBuilder().inputStreamSupplier(() -> store.open(artifact)).build();
+    }
+
+    private static boolean isDeployable(ArtifactType type) {
+        switch (type) {
+        case war:
+        case jar:
+        case ear:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        return delegate.listVersions(groupId, artifactId, snapshot);
+    }
+
+    @Override public String toString() { return "stored:" + delegate; }
+}
@@ -1,6 +1,7 @@
 package com.github.t1.deployer.repository;
 
 import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Trace;
 import com.github.t1.rest.*;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
@@ -288,10 +289,13 @@ class ArtifactoryRepository extends Repository {
         }
     }
 
+    /** The download starts only when the artifact is read, so the uri goes into a span of its own */
     private InputStream download(FileInfo fileInfo) {
         URI uri = fileInfo.getDownloadUri();
         if (uri == null)
             throw new RuntimeException("no download uri from repository for " + fileInfo.getUri());
-        return rest.createResource(uri).GET(InputStream.class);
+        try (Trace.Span span = Trace.span("repository.request").attribute("uri", uri)) {
+            return rest.createResource(uri).GET(InputStream.class);
+        }
     }
 }
@@ -0,0 +1,162 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Remembers which artifact a checksum stands for. A SHA-1 maps to exactly one immutable artifact, so positive hits
+ * never expire; they are only evicted when the cache is full (least recently used first) and they are appended to a
+ * small file, so they survive a restart. Checksums the repository doesn't know are remembered only for a limited time,
+ * as they may be uploaded any time.
+ */
+@Slf4j
+class ChecksumCache {
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final Age DEFAULT_UNKNOWN_TTL = Age.ofMinutes(5);
+
+    @Value
+    static class Coordinates {
+        static Coordinates of(Artifact artifact) {
+            return new Coordinates(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                    artifact.getType());
+        }
+
+        static Coordinates parse(String string) {
+            String[] split = string.split(":");
+            if (split.length != 4)
+                throw new IllegalArgumentException("expected group-id:artifact-id:version:type but got: " + string);
+            return new Coordinates(new GroupId(split[0]), new ArtifactId(split[1]), new Version(split[2]),
+                    ArtifactType.valueOf(split[3]));
+        }
+
+        @NonNull GroupId groupId;
+        @NonNull ArtifactId artifactId;
+        @NonNull Version version;
+        @NonNull ArtifactType type;
+
+        @Override public String toString() { return groupId + ":" + artifactId + ":" + version + ":" + type; }
+    }
+
+    private final Path file;
+    private final int capacity;
+    private final Duration unknownTtl;
+    private final Clock clock;
+
+    private final Map<Checksum, Coordinates> known;
+    private final Map<Checksum, Instant> unknown;
+
+    ChecksumCache(Path file, int capacity, Age unknownTtl) { this(file, capacity, unknownTtl, Clock.systemUTC()); }
+
+    ChecksumCache(Path file, int capacity, Age unknownTtl, Clock clock) {
+        this.file = file;
+        this.capacity = capacity;
+        this.unknownTtl = unknownTtl.getDuration();
+        this.clock = clock;
+        this.known = lru(capacity);
+        this.unknown = lru(capacity);
+        load();
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) { return size() > capacity; }
+        };
+    }
+
+    public synchronized Coordinates get(Checksum checksum) { return known.get(checksum); }
+
+    public synchronized boolean isUnknown(Checksum checksum) {
+        Instant expiry = unknown.get(checksum);
+        if (expiry == null)
+            return false;
+        if (clock.instant().isBefore(expiry))
+            return true;
+        unknown.remove(checksum);
+        return false;
+    }
+
+    public synchronized void put(Checksum checksum, Coordinates coordinates) {
+        unknown.remove(checksum);
+        if (coordinates.equals(known.put(checksum, coordinates)))
+            return;
+        append(checksum, coordinates);
+    }
+
+    public synchronized void putUnknown(Checksum checksum) {
+        if (!unknownTtl.isZero() && !unknownTtl.isNegative())
+            unknown.put(checksum, clock.instant().plus(unknownTtl));
+    }
+
+    public synchronized int size() { return known.size(); }
+
+
+    private void load() {
+        if (file == null || !Files.isRegularFile(file))
+            return;
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines++;
+                parse(line);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("can't load checksum cache from '{}'; continue with what we have: {}", file, e.toString());
+        }
+        log.debug("loaded {} checksums from '{}'", known.size(), file);
+        if (lines > known.size())
+            compact();
+    }
+
+    private void parse(String line) {
+        if (line.trim().isEmpty())
+            return;
+        String[] split = line.split(" ", 2);
+        if (split.length != 2)
+            throw new IllegalArgumentException("expected checksum and coordinates but got: " + line);
+        known.put(Checksum.fromString(split[0]), Coordinates.parse(split[1]));
+    }
+
+    private void append(Checksum checksum, Coordinates coordinates) {
+        if (file == null)
+            return;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND)) {
+            writer.write(line(checksum, coordinates));
+        } catch (IOException e) {
+            log.warn("can't write checksum cache to '{}': {}", file, e.toString());
+        }
+    }
+
+    /** the file is append-only, so duplicates and evicted entries accumulate until we rewrite it */
+    private void compact() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, UTF_8)) {
+                for (Map.Entry<Checksum, Coordinates> entry : known.entrySet())
+                    writer.write(line(entry.getKey(), entry.getValue()));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("compacted checksum cache '{}' to {} entries", file, known.size());
+        } catch (IOException e) {
+            log.warn("can't compact checksum cache '{}': {}", file, e.toString());
+        }
+    }
+
+    private static String line(Checksum checksum, Coordinates coordinates) {
+        return checksum + " " + coordinates + "\n";
+    }
+
+    @Override public String toString() {
+        return "ChecksumCache[" + ((file == null) ? "in-memory" : file) + ":" + capacity + ":" + unknownTtl + "]";
+    }
+}
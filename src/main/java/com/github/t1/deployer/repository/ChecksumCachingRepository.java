@@ -0,0 +1,72 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.ChecksumCache.Coordinates;
+import com.github.t1.deployer.tools.Metrics;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Decorates a {@link Repository}, so searching by checksum only goes to the remote repository once per checksum.
+ * Everything else is passed through to the delegate.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class ChecksumCachingRepository extends Repository {
+    @NonNull @Getter private final Repository delegate;
+    @NonNull private final ChecksumCache cache;
+
+    @Override public Artifact searchByChecksum(Checksum checksum) {
+        if (cache.isUnknown(checksum)) {
+            log.debug("cached unknown checksum {}", checksum);
+            throw new UnknownChecksumException(checksum);
+        }
+        Coordinates coordinates = cache.get(checksum);
+        if (coordinates != null) {
+            log.debug("cached checksum {} -> {}", checksum, coordinates);
+            return artifact(checksum, coordinates);
+        }
+        try (Metrics.Timing timing = Metrics.time("repository.search-by-checksum").attribute("checksum", checksum)) {
+            Artifact artifact = delegate.searchByChecksum(checksum);
+            cache.put(checksum, Coordinates.of(artifact));
+            return artifact;
+        } catch (UnknownChecksumException e) {
+            cache.putUnknown(checksum);
+            throw e;
+        }
+    }
+
+    private Artifact artifact(Checksum checksum, Coordinates coordinates) {
+        //noinspection resource
+        return Artifact
+                .builder()
+                .groupId(coordinates.getGroupId())
+                .artifactId(coordinates.getArtifactId())
+                .version(coordinates.getVersion())
+                .type(coordinates.getType())
+                .checksum(checksum)
+                .inputStreamSupplier(() -> lookupArtifact(coordinates.getGroupId(), coordinates.getArtifactId(),
+                        coordinates.getVersion(), coordinates.getType(), null).getInputStream())
+                .build();
+    }
+
+    @Override protected Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+            ArtifactType type, Classifier classifier) {
+        try (Metrics.Timing timing = Metrics.time("repository.lookup-artifact")
+                .attribute("artifact", groupId + ":" + artifactId + ":" + version + ":" + type
+                        + ((classifier == null) ? "" : ":" + classifier))) {
+            return delegate.lookupArtifact(groupId, artifactId, version, type, classifier);
+        }
+    }
+
+    @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        try (Metrics.Timing timing = Metrics.time("repository.list-versions")
+                .attribute("artifact", groupId + ":" + artifactId)) {
+            return delegate.listVersions(groupId, artifactId, snapshot);
+        }
+    }
+
+    @Override public String toString() { return "cached:" + delegate; }
+}
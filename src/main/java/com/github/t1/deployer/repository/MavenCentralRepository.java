@@ -1,6 +1,7 @@
 package com.github.t1.deployer.repository;
 
 import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.tools.Trace;
 import com.github.t1.rest.*;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
@@ -130,10 +131,14 @@ class MavenCentralRepository extends Repository {
         return Checksum.fromString(response.expecting(OK).getBody());
     }
 
+    /** The download starts only when the artifact is read, so the uri goes into a span of its own */
     private InputStream download(GroupId groupId, ArtifactId artifactId, Version version, ArtifactType type) {
         RestResource resource = resource(downloadPath(groupId, artifactId, version, type));
         log.debug("download from {}", resource);
-        EntityResponse<InputStream> response = resource.GET_Response(InputStream.class);
+        EntityResponse<InputStream> response;
+        try (Trace.Span span = Trace.span("repository.request").attribute("uri", resource.uri())) {
+            response = resource.GET_Response(InputStream.class);
+        }
         if (!response.status().equals(OK))
             throw builderFor(BAD_GATEWAY)
                     .title("can't download " + groupId + ":" + artifactId + ":" + version + ":" + type)
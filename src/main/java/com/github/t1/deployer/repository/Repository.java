@@ -2,17 +2,22 @@ package com.github.t1.deployer.repository;
 
 import com.github.t1.deployer.model.*;
 import com.github.t1.log.Logged;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
 
 import static com.github.t1.deployer.model.ArtifactType.*;
 import static com.github.t1.problem.WebException.*;
+import static lombok.AccessLevel.*;
 
 /** Stores artifacts, e.g. Maven Central or Artifactory */
 @Slf4j
 @Logged
 public abstract class Repository {
+    /** optional; set by the producer on the outermost repository */
+    @Setter(PACKAGE) private VersionIndex versionIndex;
+
     /** find artifact in repository or return a dummy representing `unknown` or `error`. */
     public Artifact lookupByChecksum(Checksum checksum) {
         if (checksum == null || checksum.isEmpty())
@@ -58,14 +63,22 @@ public abstract class Repository {
     }
 
     private Version findVersion(GroupId groupId, ArtifactId artifactId, boolean snapshots, Version versionExpression) {
-        List<Version> versions = listVersions(groupId, artifactId, false);
-        if (snapshots)
-            versions.addAll(listVersions(groupId, artifactId, true));
-        Optional<Version> max = versions.stream().max(Comparator.naturalOrder());
-        if (!max.isPresent())
+        Version max = maxVersion(groupId, artifactId, false);
+        if (snapshots) {
+            Version maxSnapshot = maxVersion(groupId, artifactId, true);
+            if (max == null || (maxSnapshot != null && maxSnapshot.compareTo(max) > 0))
+                max = maxSnapshot;
+        }
+        if (max == null)
             throw badRequest("no versions found for " + groupId + ":" + artifactId);
-        log.debug("resolved {}:{} {} to {}", groupId, artifactId, versionExpression, max.get());
-        return max.get();
+        log.debug("resolved {}:{} {} to {}", groupId, artifactId, versionExpression, max);
+        return max;
+    }
+
+    private Version maxVersion(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        if (versionIndex == null)
+            return VersionIndex.max(listVersions(groupId, artifactId, snapshot));
+        return versionIndex.max(groupId, artifactId, snapshot, () -> listVersions(groupId, artifactId, snapshot));
     }
 
     protected abstract Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
@@ -0,0 +1,51 @@
+package com.github.t1.deployer.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds what the {@link RepositoryProducer} must not create for every injection point. The caches are created with
+ * the config at the time they are first used; changing their size or ttl requires a restart.
+ */
+@Slf4j
+@ApplicationScoped
+class RepositoryCaches {
+    private final Map<URI, RepositoryType> lookedUpTypes = new ConcurrentHashMap<>();
+    private ChecksumCache checksumCache;
+    private VersionIndex versionIndex;
+    private ArtifactStore artifactStore;
+
+    RepositoryType lookedUpType(URI uri, Supplier<RepositoryType> lookup) {
+        return lookedUpTypes.computeIfAbsent(uri, u -> lookup.get());
+    }
+
+    synchronized ChecksumCache checksumCache(Supplier<ChecksumCache> create) {
+        if (checksumCache == null) {
+            checksumCache = create.get();
+            log.debug("created {}", checksumCache);
+        }
+        return checksumCache;
+    }
+
+    synchronized VersionIndex versionIndex(Supplier<VersionIndex> create) {
+        if (versionIndex == null) {
+            versionIndex = create.get();
+            log.debug("created {}", versionIndex);
+        }
+        return versionIndex;
+    }
+
+    /** one store for all repositories, so concurrent downloads share the eviction */
+    synchronized ArtifactStore artifactStore(Supplier<ArtifactStore> create) {
+        if (artifactStore == null) {
+            artifactStore = create.get();
+            log.debug("created {}", artifactStore);
+        }
+        return artifactStore;
+    }
+}
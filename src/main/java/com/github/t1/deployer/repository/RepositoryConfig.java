@@ -1,6 +1,6 @@
 package com.github.t1.deployer.repository;
 
-import com.github.t1.deployer.model.Password;
+import com.github.t1.deployer.model.*;
 import lombok.*;
 
 import java.net.URI;
@@ -18,4 +18,8 @@ public class RepositoryConfig {
     Password password;
     String repositorySnapshots;
     String repositoryReleases;
+    Integer checksumCacheSize;
+    Age unknownChecksumTtl;
+    Long artifactStoreSize;
+    Age versionIndexTtl;
 }
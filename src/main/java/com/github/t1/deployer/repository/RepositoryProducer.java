@@ -6,17 +6,22 @@ import com.github.t1.rest.RestContext;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.conn.HttpHostConnectException;
 
-import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import java.net.*;
+import java.nio.file.Path;
 
 import static com.github.t1.deployer.repository.RepositoryType.*;
 import static com.github.t1.deployer.tools.Tools.*;
 import static com.github.t1.rest.RestContext.*;
 
+/**
+ * Dependent, so every repository is produced with the current config; the caches that have to live longer are held
+ * by the {@link RepositoryCaches}.
+ */
 @Slf4j
-@ApplicationScoped
+@Dependent
 class RepositoryProducer {
     static final URI DEFAULT_ARTIFACTORY_URI = URI.create("http://localhost:8081/artifactory");
     static final URI DEFAULT_MAVEN_CENTRAL_URI = URI.create("https://search.maven.org");
@@ -28,10 +33,42 @@ class RepositoryProducer {
     @Inject @Config("repository.password") Password password;
     @Inject @Config("repository.snapshots") String repositorySnapshots;
     @Inject @Config("repository.releases") String repositoryReleases;
+    @Inject @Config("repository.checksum-cache-size") Integer checksumCacheSize;
+    @Inject @Config("repository.unknown-checksum-ttl") Age unknownChecksumTtl;
+    @Inject @Config("repository.checksum-cache-file") Path checksumCacheFile;
+    @Inject @Config("repository.artifact-store-size") Long artifactStoreSize;
+    @Inject @Config("repository.artifact-store-dir") Path artifactStoreDir;
+    @Inject @Config("repository.version-index-ttl") Age versionIndexTtl;
+
+    @Inject RepositoryCaches caches;
 
     RestContext rest = REST;
 
-    @Produces Repository repository() {
+    @Produces Repository produceRepository() {
+        if (type == null)
+            type = caches.lookedUpType(nvl(uri, DEFAULT_ARTIFACTORY_URI), this::lookupType);
+        Repository repository = new ChecksumCachingRepository(stored(repository()), checksumCache());
+        repository.setVersionIndex(versionIndex());
+        return repository;
+    }
+
+    private Repository stored(Repository repository) {
+        long megabytes = nvl(artifactStoreSize, ArtifactStore.DEFAULT_MAX_MEGABYTES);
+        if (megabytes <= 0)
+            return repository;
+        return new ArtifactStoreRepository(repository,
+                caches.artifactStore(() -> new ArtifactStore(artifactStoreDir, megabytes * 1024 * 1024)));
+    }
+
+    private ChecksumCache checksumCache() {
+        return caches.checksumCache(() -> new ChecksumCache(checksumCacheFile,
+                nvl(checksumCacheSize, ChecksumCache.DEFAULT_CAPACITY),
+                nvl(unknownChecksumTtl, ChecksumCache.DEFAULT_UNKNOWN_TTL)));
+    }
+
+    @Produces VersionIndex versionIndex() { return caches.versionIndex(() -> new VersionIndex(versionIndexTtl)); }
+
+    Repository repository() {
         if (type == null)
             type = lookupType();
         switch (type) {
@@ -0,0 +1,118 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.*;
+
+/**
+ * Remembers the highest version of artifacts, so resolving <code>LATEST</code> or <code>UNSTABLE</code> doesn't have
+ * to list and sort all versions in the remote repository again for every bundle and deployable with the same
+ * group-id and artifact-id. By default, the versions are only remembered while one plan is applied, as new versions
+ * may be uploaded any time; with a ttl, they are also shared between applies.
+ * <p>
+ * The versions of one apply are kept in an {@link Apply} object bound to the thread that started it, so other
+ * requests, e.g. listing the versions of a deployment, are not affected by an apply running at the same time. Work
+ * done for the apply in other threads has to be {@link #propagate(Function) propagated} explicitly.
+ */
+@Slf4j
+public class VersionIndex {
+    @Value
+    private static class Key {
+        @NonNull GroupId groupId;
+        @NonNull ArtifactId artifactId;
+        boolean snapshot;
+
+        @Override public String toString() { return groupId + ":" + artifactId + (snapshot ? ":snapshots" : ""); }
+    }
+
+    @Value
+    private static class Entry {
+        Version max;
+        Instant expiry;
+    }
+
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ThreadLocal<Apply> current = new ThreadLocal<>();
+
+    VersionIndex(Age ttl) { this(ttl, Clock.systemUTC()); }
+
+    VersionIndex(Age ttl, Clock clock) {
+        this.ttl = (ttl == null) ? Duration.ZERO : ttl.getDuration();
+        this.clock = clock;
+    }
+
+    private boolean isPerApply() { return ttl.isZero() || ttl.isNegative(); }
+
+    /** Start indexing the versions for one apply on the current thread; close the returned object to stop it */
+    public Apply startApply() {
+        Apply apply = new Apply();
+        current.set(apply);
+        return apply;
+    }
+
+    /** The versions indexed while one plan is applied */
+    public class Apply implements AutoCloseable {
+        private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+        @Override public void close() {
+            if (current.get() == this)
+                current.remove();
+        }
+    }
+
+    /** Wrap the function, so it uses the versions of the current apply, even when it's called in another thread */
+    public <T, R> Function<T, R> propagate(Function<T, R> function) {
+        Apply apply = current.get();
+        if (apply == null)
+            return function;
+        return item -> {
+            Apply outer = current.get();
+            current.set(apply);
+            try {
+                return function.apply(item);
+            } finally {
+                if (outer == null)
+                    current.remove();
+                else
+                    current.set(outer);
+            }
+        };
+    }
+
+    /**
+     * The highest version or <code>null</code>, if there is none. The versions are only listed, if they are not yet
+     * indexed. This is not synchronized, as listing may take a while; concurrent listings of the same key are harmless.
+     */
+    Version max(GroupId groupId, ArtifactId artifactId, boolean snapshot, Supplier<List<Version>> list) {
+        Map<Key, Entry> entries = isPerApply() ? currentApplyEntries() : this.entries;
+        if (entries == null)
+            return max(list.get());
+        Key key = new Key(groupId, artifactId, snapshot);
+        Entry entry = entries.get(key);
+        if (entry == null || (entry.getExpiry() != null && !clock.instant().isBefore(entry.getExpiry()))) {
+            entry = new Entry(max(list.get()), isPerApply() ? null : clock.instant().plus(ttl));
+            log.debug("index max version of {}: {}", key, entry.getMax());
+            entries.put(key, entry);
+        }
+        return entry.getMax();
+    }
+
+    private Map<Key, Entry> currentApplyEntries() {
+        Apply apply = current.get();
+        return (apply == null) ? null : apply.entries;
+    }
+
+    static Version max(List<Version> versions) {
+        return versions.stream().max(Comparator.naturalOrder()).orElse(null);
+    }
+
+    @Override public String toString() { return "VersionIndex[" + (isPerApply() ? "per apply" : ttl) + "]"; }
+}
@@ -1,24 +1,58 @@
 package com.github.t1.deployer.tools;
 
-import lombok.SneakyThrows;
+import lombok.*;
 import org.jetbrains.annotations.NotNull;
 
 import javax.crypto.Cipher;
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
 import java.security.*;
 import java.security.KeyStore.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import static java.nio.charset.StandardCharsets.*;
 import static javax.crypto.Cipher.*;
 import static javax.xml.bind.DatatypeConverter.*;
 
+/**
+ * Encrypts and decrypts with keys from a key store. The keys are cached by the path, type, and alias, and reloaded
+ * only when the modification time of the key store file or the pass changes; the pass is kept only as a salted
+ * digest. The <code>Cipher</code> instances are reused per thread, so an operation costs little more than the actual
+ * cryptography.
+ */
 public class CipherFacade {
     public static final String DEFAULT_PASS = "changeit";
 
+    @Value
+    private static class KeyId {
+        Path path;
+        String type;
+        String alias;
+        boolean forDecryption;
+    }
+
+    @Value
+    private static class CachedKey {
+        FileTime lastModified;
+        byte[] passDigest;
+        Key key;
+
+        boolean isValidFor(FileTime lastModified, byte[] passDigest) {
+            return this.lastModified.equals(lastModified) && MessageDigest.isEqual(this.passDigest, passDigest);
+        }
+    }
+
+    private final byte[] salt = new byte[16];
+    private final Map<KeyId, CachedKey> keys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, Cipher>> ciphers = ThreadLocal.withInitial(HashMap::new);
+
+    public CipherFacade() { new SecureRandom().nextBytes(salt); }
+
     public String encrypt(String plain, KeyStoreConfig config) {
-        Key key = loadKey(config, entry -> entry.getCertificate().getPublicKey());
+        Key key = key(config, false, entry -> entry.getCertificate().getPublicKey());
         return encrypt(plain, key);
     }
 
@@ -27,10 +61,40 @@ public class CipherFacade {
     }
 
     public String decrypt(String text, KeyStoreConfig config) {
-        Key key = loadKey(config, PrivateKeyEntry::getPrivateKey);
+        Key key = key(config, true, PrivateKeyEntry::getPrivateKey);
         return new String(cipher(DECRYPT_MODE, parseHexBinary(text), key), UTF_8);
     }
 
+    @SneakyThrows(IOException.class)
+    private Key key(KeyStoreConfig config, boolean forDecryption, Function<PrivateKeyEntry, Key> privateKeyExtractor) {
+        Path path = getKeyStorePath(config);
+        KeyId id = new KeyId(path, getKeystoreType(config), config.getAlias(), forDecryption);
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        byte[] passDigest = passDigest(config);
+        CachedKey cached = keys.get(id);
+        if (cached == null || !cached.isValidFor(lastModified, passDigest)) {
+            cached = new CachedKey(lastModified, passDigest, loadKey(config, privateKeyExtractor));
+            keys.put(id, cached);
+        }
+        return cached.getKey();
+    }
+
+    @SneakyThrows(NoSuchAlgorithmException.class)
+    private byte[] passDigest(KeyStoreConfig config) {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(salt);
+        char[] pass = getKeyPass(config);
+        try {
+            for (char c : pass) {
+                digest.update((byte) (c >> 8));
+                digest.update((byte) c);
+            }
+        } finally {
+            Arrays.fill(pass, '\0');
+        }
+        return digest.digest();
+    }
+
     @SneakyThrows({ GeneralSecurityException.class, IOException.class })
     private Key loadKey(KeyStoreConfig config, Function<PrivateKeyEntry, Key> privateKeyExtractor) {
         KeyStore store = loadKeyStore(config);
@@ -47,17 +111,29 @@ public class CipherFacade {
 
     @NotNull private KeyStore loadKeyStore(KeyStoreConfig config) throws GeneralSecurityException, IOException {
         KeyStore store = KeyStore.getInstance(getKeystoreType(config));
-        store.load(Files.newInputStream(getKeyStorePath(config)), getKeyPass(config));
+        try (InputStream inputStream = Files.newInputStream(getKeyStorePath(config))) {
+            store.load(inputStream, getKeyPass(config));
+        }
         return store;
     }
 
     @SneakyThrows(GeneralSecurityException.class)
     private byte[] cipher(int mode, byte[] bytes, Key key) {
-        Cipher cipher = Cipher.getInstance(key.getAlgorithm());
+        Cipher cipher = cipherFor(key.getAlgorithm());
         cipher.init(mode, key);
         return cipher.doFinal(bytes);
     }
 
+    private Cipher cipherFor(String algorithm) throws GeneralSecurityException {
+        Map<String, Cipher> map = ciphers.get();
+        Cipher cipher = map.get(algorithm);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(algorithm);
+            map.put(algorithm, cipher);
+        }
+        return cipher;
+    }
+
     private Path getKeyStorePath(KeyStoreConfig keyStore) {
         if (keyStore == null)
             throw new RuntimeException("no key-store configured");
@@ -1,71 +1,80 @@
 package com.github.t1.deployer.tools;
 
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.*;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.nio.file.StandardWatchEventKinds.*;
-import static java.util.Arrays.*;
-import static java.util.concurrent.TimeUnit.*;
 
+/**
+ * Watches any number of files with one {@link WatchService} and calls the callback registered for a file when it
+ * is created or modified. The thread blocks while there are no changes, so it costs nothing when idle.
+ */
 @Slf4j
 public class FileWatcher extends Thread {
-    private static final int POLL_TIMEOUT = 100;
-    private static final WatchEvent.Kind[] EVENT_KINDS = { ENTRY_MODIFY, ENTRY_CREATE };
+    private static final WatchEvent.Kind<?>[] EVENT_KINDS = { ENTRY_MODIFY, ENTRY_CREATE };
 
-    private final Path filePath;
-    private final Runnable runnable;
+    private final WatchService watcher;
+    private final Map<Path, Runnable> callbacks = new ConcurrentHashMap<>();
 
-    private final AtomicBoolean running = new AtomicBoolean(true);
+    @SneakyThrows(IOException.class)
+    public FileWatcher() {
+        super("FileWatcher");
+        setDaemon(true);
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
 
-    public FileWatcher(Path filePath, Runnable runnable) {
-        super("FileWatcher:" + filePath);
-        this.filePath = filePath;
-        this.runnable = runnable;
+    /** Call the callback whenever the file is created or modified. Can be called before or after starting. */
+    @SneakyThrows(IOException.class)
+    public FileWatcher watch(Path file, Runnable callback) {
+        Path path = file.toAbsolutePath().normalize();
+        log.info("start watching {}", path);
+        path.getParent().register(watcher, EVENT_KINDS);
+        callbacks.put(path, callback);
+        return this;
     }
 
     @Override
     public void run() {
-        log.info("start watching {}", filePath);
-        //noinspection resource
-        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
-            filePath.getParent().register(watcher, EVENT_KINDS);
-            while (running.get()) {
-                WatchKey key = watcher.poll(POLL_TIMEOUT, MILLISECONDS);
-                if (key != null) {
-                    @SuppressWarnings("unchecked")
-                    List<WatchEvent<Path>> events = (List<WatchEvent<Path>>) (List) key.pollEvents();
-                    log.debug("got watch key with {} events", events.size());
-                    for (WatchEvent<Path> event : events)
-                        handle(event);
-                    key.reset();
-                    log.debug("watch for next change");
-                }
-                Thread.yield();
+        try {
+            while (!isInterrupted()) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                @SuppressWarnings("unchecked")
+                List<WatchEvent<Path>> events = (List<WatchEvent<Path>>) (List) key.pollEvents();
+                log.debug("got watch key for {} with {} events", dir, events.size());
+                for (WatchEvent<Path> event : events)
+                    handle(dir, event);
+                key.reset();
             }
-        } catch (IOException | InterruptedException e) {
-            log.error("stop watching {} due to {} {}", filePath, e.getClass().getSimpleName(), e.getMessage());
-            throw new RuntimeException("while watching " + filePath, e);
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("watcher stopped by {}", e.getClass().getSimpleName());
         }
-        log.info("stop watching {}", filePath);
+        log.info("stop watching {}", callbacks.keySet());
     }
 
-    private void handle(WatchEvent<Path> event) {
+    private void handle(Path dir, WatchEvent<Path> event) {
         WatchEvent.Kind<?> kind = event.kind();
-
-        if (kind == StandardWatchEventKinds.OVERFLOW) {
-            log.debug("yield {} for {}", kind, event.context());
-            Thread.yield();
-        } else if (asList(EVENT_KINDS).contains(kind) && event.context().equals(filePath.getFileName())) {
-            log.info("handle {} for {}", kind, event.context());
-            runnable.run();
-        } else {
+        Runnable callback = (kind == OVERFLOW) ? null : callbacks.get(dir.resolve(event.context()));
+        if (callback == null) {
             log.debug("skip {} for {}", kind, event.context());
+            return;
+        }
+        log.info("handle {} for {}", kind, event.context());
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            log.error("callback for " + kind + " of " + event.context() + " failed", e);
         }
     }
 
-    public void shutdown() { running.set(false); }
+    @SneakyThrows(IOException.class)
+    public void shutdown() {
+        interrupt();
+        watcher.close();
+    }
 }
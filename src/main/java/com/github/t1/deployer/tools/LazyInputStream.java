@@ -0,0 +1,37 @@
+package com.github.t1.deployer.tools;
+
+import lombok.RequiredArgsConstructor;
+
+import java.io.*;
+import java.util.function.Supplier;
+
+/**
+ * Opens the actual stream only when it's read for the first time, e.g. so the content of a deployment is only
+ * downloaded when the batch is actually executed, and not when it's rolled back.
+ */
+@RequiredArgsConstructor
+public class LazyInputStream extends InputStream {
+    private final Supplier<InputStream> supplier;
+    private InputStream delegate;
+
+    private InputStream delegate() {
+        if (delegate == null)
+            delegate = supplier.get();
+        return delegate;
+    }
+
+    @Override public int read() throws IOException { return delegate().read(); }
+
+    @Override public int read(byte[] bytes, int off, int len) throws IOException {
+        return delegate().read(bytes, off, len);
+    }
+
+    @Override public long skip(long n) throws IOException { return delegate().skip(n); }
+
+    @Override public int available() throws IOException { return delegate().available(); }
+
+    @Override public void close() throws IOException {
+        if (delegate != null)
+            delegate.close();
+    }
+}
@@ -0,0 +1,242 @@
+package com.github.t1.deployer.tools;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.*;
+import java.util.function.LongSupplier;
+
+import static java.util.Locale.*;
+import static lombok.AccessLevel.*;
+
+/**
+ * Timing histograms for the phases of an apply, e.g. parsing the plan, repository lookups, or committing the batch.
+ * Recording only takes a few atomic increments into fixed buckets, so it's cheap enough to be always on; the
+ * percentiles are only computed when somebody looks at them, via JMX or the Prometheus text format.
+ * The buckets have a relative width of 1/8, so the percentiles are precise to about 12%.
+ * <p>
+ * Other components can add {@link #gauge(String, String, LongSupplier) gauges} and
+ * {@link #counter(String, String, LongSupplier) counters}; their values are only read when they are exported.
+ */
+@Slf4j
+public class Metrics {
+    private static final String OBJECT_NAME = "com.github.t1.deployer:type=Metrics,phase=";
+    private static final String GAUGE_OBJECT_NAME = "com.github.t1.deployer:type=Metrics,gauge=";
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = SUB_BUCKETS * 62;
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> GAUGES = new ConcurrentSkipListMap<>();
+
+    /**
+     * Start timing a phase; the time is recorded when the returned timing is closed.
+     * When a {@link Trace} is running, the phase is also recorded as a span.
+     */
+    public static Timing time(String phase) {
+        return new Timing(histogram(phase), Trace.span(phase), System.nanoTime());
+    }
+
+    public static Histogram histogram(String phase) { return HISTOGRAMS.computeIfAbsent(phase, Metrics::register); }
+
+    private static Histogram register(String phase) {
+        Histogram histogram = new Histogram(phase);
+        register(histogram, OBJECT_NAME + phase);
+        return histogram;
+    }
+
+    /** Export the current value of the supplier; a gauge with the same name is replaced */
+    public static void gauge(String name, String help, LongSupplier value) {
+        register(new Gauge(name, help, "gauge", value));
+    }
+
+    /** Export the current value of the supplier, that only ever increases; a counter with the same name is replaced */
+    public static void counter(String name, String help, LongSupplier value) {
+        register(new Gauge(name, help, "counter", value));
+    }
+
+    private static void register(Gauge gauge) {
+        GAUGES.put(gauge.name, gauge);
+        register(gauge, GAUGE_OBJECT_NAME + gauge.name);
+    }
+
+    /** An MBean with the same name is replaced, e.g. one left over from a previous deployment */
+    private static void register(Object mbean, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            server.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            log.debug("can't register metrics {}: {}", name, e.toString());
+        }
+    }
+
+    private static void unregister(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.debug("can't unregister metrics {}: {}", name, e.toString());
+        }
+    }
+
+    /** Stop exporting the gauge or counter with that name */
+    public static void remove(String name) {
+        GAUGES.remove(name);
+        unregister(GAUGE_OBJECT_NAME + name);
+    }
+
+    /** Stop exporting all histograms, gauges, and counters, e.g. when the application stops */
+    public static void removeAll() {
+        HISTOGRAMS.keySet().forEach(phase -> unregister(OBJECT_NAME + phase));
+        HISTOGRAMS.clear();
+        GAUGES.keySet().forEach(name -> unregister(GAUGE_OBJECT_NAME + name));
+        GAUGES.clear();
+    }
+
+    /** All histograms in the Prometheus text exposition format, as a summary with the durations in seconds */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP deployer_phase_seconds Duration of the phases of applying a plan\n");
+        out.append("# TYPE deployer_phase_seconds summary\n");
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            String labels = "phase=\"" + histogram.phase + "\"";
+            for (double quantile : new double[] { 0.5, 0.95, 0.99 })
+                out.append("deployer_phase_seconds{").append(labels).append(",quantile=\"").append(quantile)
+                   .append("\"} ").append(seconds(histogram.percentile(quantile))).append('\n');
+            out.append("deployer_phase_seconds_sum{").append(labels).append("} ")
+               .append(seconds(histogram.sum.get())).append('\n');
+            out.append("deployer_phase_seconds_count{").append(labels).append("} ")
+               .append(histogram.count.get()).append('\n');
+        }
+        out.append("# HELP deployer_phase_max_seconds Longest duration of the phases of applying a plan\n");
+        out.append("# TYPE deployer_phase_max_seconds gauge\n");
+        for (Histogram histogram : HISTOGRAMS.values())
+            out.append("deployer_phase_max_seconds{phase=\"").append(histogram.phase).append("\"} ")
+               .append(seconds(histogram.max.get())).append('\n');
+        for (Gauge gauge : GAUGES.values()) {
+            out.append("# HELP deployer_").append(gauge.name).append(' ').append(gauge.help).append('\n');
+            out.append("# TYPE deployer_").append(gauge.name).append(' ').append(gauge.type).append('\n');
+            out.append("deployer_").append(gauge.name).append(' ').append(gauge.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String seconds(long micros) { return String.format(US, "%.6f", micros / 1_000_000.0); }
+
+    @RequiredArgsConstructor
+    public static class Timing implements AutoCloseable {
+        private final Histogram histogram;
+        private final Trace.Span span;
+        private final long start;
+
+        /** add an attribute to the trace span, if there is a trace running */
+        public Timing attribute(String key, Object value) {
+            span.attribute(key, value);
+            return this;
+        }
+
+        @Override public void close() {
+            histogram.record((System.nanoTime() - start) / 1000);
+            span.close();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public interface GaugeMXBean {
+        long getValue();
+    }
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    public static class Gauge implements GaugeMXBean {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final LongSupplier value;
+
+        @Override public long getValue() { return value.getAsLong(); }
+    }
+
+    @SuppressWarnings("unused")
+    public interface HistogramMXBean {
+        long getCount();
+
+        double getP50Millis();
+
+        double getP95Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+    }
+
+    public static class Histogram implements HistogramMXBean {
+        private final String phase;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(String phase) { this.phase = phase; }
+
+        public void record(long micros) {
+            buckets.incrementAndGet(bucket(Math.max(0, micros)));
+            count.incrementAndGet();
+            sum.addAndGet(micros);
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        /** the first values are exact, then every power of two is split into equally wide sub-buckets */
+        private static int bucket(long micros) {
+            if (micros < SUB_BUCKETS)
+                return (int) micros;
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >> (exponent - 3)) - SUB_BUCKETS;
+            return SUB_BUCKETS * (exponent - 2) + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket + 1;
+            int exponent = bucket / SUB_BUCKETS + 2;
+            int sub = bucket % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub + 1) << (exponent - 3);
+        }
+
+        /** the upper bound of the bucket containing the quantile, but never more than the max, in microseconds */
+        public long percentile(double quantile) {
+            long total = count.get();
+            if (total == 0)
+                return 0;
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        @Override public long getCount() { return count.get(); }
+
+        @Override public double getP50Millis() { return percentile(0.5) / 1000.0; }
+
+        @Override public double getP95Millis() { return percentile(0.95) / 1000.0; }
+
+        @Override public double getP99Millis() { return percentile(0.99) / 1000.0; }
+
+        @Override public double getMaxMillis() { return max.get() / 1000.0; }
+
+        @Override public String toString() {
+            return phase + "[count=" + count + ", p50=" + percentile(0.5) + "us, max=" + max + "us]";
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.t1.deployer.tools;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * Runs slow, independent calls (e.g. remote repository lookups) on the managed executor of the container, so the
+ * threads have the naming and security context of the application, and the container shuts them down when the
+ * application is undeployed. The calls must not rely on the CDI request context, as that's not available in the
+ * executor threads. Without an executor, e.g. in tests, the calls run one after the other.
+ */
+@Slf4j
+@ApplicationScoped
+public class Parallel {
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ExecutorService executor;
+
+    public Parallel() {}
+
+    public Parallel(ExecutorService executor) { this.executor = executor; }
+
+    /** Apply the function to all items in parallel and return the results in the order of the items. */
+    public <T, R> List<R> map(List<T> items, Function<T, R> function) {
+        if (items.size() < 2 || executor == null)
+            return items.stream().map(function).collect(toList());
+        log.debug("run {} calls in parallel", items.size());
+        Function<T, R> traced = Trace.propagate(function);
+        List<CompletableFuture<R>> futures = items
+                .stream()
+                .map(item -> CompletableFuture.supplyAsync(() -> traced.apply(item), executor))
+                .collect(toList());
+        return futures.stream().map(Parallel::join).collect(toList());
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.t1.deployer.tools;
+
+import java.io.*;
+
+/**
+ * Counts the bytes read and closes the {@link Metrics.Timing timing} with the number of <code>bytes</code> when the
+ * end of the stream is reached or when it's closed, whatever comes first; so it works for streams that are read
+ * later or in another thread, e.g. the content of a deployment that the container reads while committing the batch.
+ */
+public class TimedInputStream extends FilterInputStream {
+    private final Metrics.Timing timing;
+    private long bytes;
+    private boolean done;
+
+    public TimedInputStream(InputStream inputStream, Metrics.Timing timing) {
+        super(inputStream);
+        this.timing = timing;
+    }
+
+    @Override public int read() throws IOException {
+        int result = super.read();
+        if (result < 0)
+            done();
+        else
+            bytes++;
+        return result;
+    }
+
+    @Override public int read(byte[] bytes, int off, int len) throws IOException {
+        int result = super.read(bytes, off, len);
+        if (result < 0)
+            done();
+        else
+            this.bytes += result;
+        return result;
+    }
+
+    @Override public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            done();
+        }
+    }
+
+    private synchronized void done() {
+        if (done)
+            return;
+        done = true;
+        timing.attribute("bytes", bytes).close();
+    }
+}
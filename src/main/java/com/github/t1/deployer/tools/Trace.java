@@ -0,0 +1,128 @@
+package com.github.t1.deployer.tools;
+
+import com.fasterxml.jackson.annotation.*;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.*;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
+
+/**
+ * A tree of spans for one apply, e.g. to find out why a rollout on one specific host took so long, without enabling
+ * the CLI debug logging. It's only recorded while a trace is {@link #start(String) started} on the current thread;
+ * otherwise {@link #span(String)} returns a no-op span, so it costs next to nothing. The spans are kept in a thread
+ * local, so work done in other threads has to be {@link #propagate(Function) propagated} explicitly.
+ */
+public class Trace {
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    /** A span that records nothing, for when there is no trace running */
+    public static final Span NONE = new Span(null, "none", 0) {
+        @Override public Span attribute(String key, Object value) { return this; }
+
+        @Override public void close() {}
+    };
+
+    /** Start a new trace on the current thread; close the returned root span to stop it */
+    public static Span start(String name) {
+        Span root = new Span(null, name, System.nanoTime());
+        CURRENT.set(root);
+        return root;
+    }
+
+    /** Start a child of the current span, or return {@link #NONE} when there is no trace running */
+    public static Span span(String name) {
+        Span parent = CURRENT.get();
+        if (parent == null)
+            return NONE;
+        Span span = parent.child(name);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /** Add an attribute to the current span, if there is one */
+    public static void attribute(String key, Object value) {
+        Span current = CURRENT.get();
+        if (current != null)
+            current.attribute(key, value);
+    }
+
+    /** Wrap the function, so the spans it starts in another thread become children of the current span */
+    public static <T, R> Function<T, R> propagate(Function<T, R> function) {
+        Span parent = CURRENT.get();
+        if (parent == null)
+            return function;
+        return item -> {
+            Span outer = CURRENT.get();
+            CURRENT.set(parent);
+            try {
+                return function.apply(item);
+            } finally {
+                CURRENT.set(outer);
+            }
+        };
+    }
+
+    /**
+     * Wrap the supplier, so the spans it starts become children of the current span, even when it's called later and
+     * in another thread, e.g. a lazy download that runs when the management client reads the content.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> supplier) {
+        Function<Void, T> function = propagate(ignored -> supplier.get());
+        return () -> function.apply(null);
+    }
+
+    @JsonPropertyOrder({ "name", "start-ms", "duration-ms", "attributes", "children" })
+    public static class Span implements AutoCloseable {
+        private final Span parent;
+        private final long startNanos;
+        @Getter private final String name;
+        @Getter @JsonInclude(NON_EMPTY) private final Map<String, String> attributes =
+                Collections.synchronizedMap(new LinkedHashMap<>());
+        @Getter @JsonInclude(NON_EMPTY) private final List<Span> children = new CopyOnWriteArrayList<>();
+        private long durationNanos = -1;
+
+        private Span(Span parent, String name, long startNanos) {
+            this.parent = parent;
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        private Span child(String name) {
+            Span child = new Span(this, name, System.nanoTime());
+            children.add(child);
+            return child;
+        }
+
+        public Span attribute(String key, Object value) {
+            attributes.put(key, (value == null) ? null : value.toString());
+            return this;
+        }
+
+        /** the start relative to the root span */
+        @JsonProperty("start-ms") public double getStartMillis() { return (startNanos - root().startNanos) / 1e6; }
+
+        /** or -1, if the span is still open */
+        @JsonProperty("duration-ms") public double getDurationMillis() {
+            return (durationNanos < 0) ? -1 : durationNanos / 1e6;
+        }
+
+        private Span root() { return (parent == null) ? this : parent.root(); }
+
+        @Override public void close() {
+            durationNanos = System.nanoTime() - startNanos;
+            if (CURRENT.get() == this) {
+                if (parent == null)
+                    CURRENT.remove();
+                else
+                    CURRENT.set(parent);
+            }
+        }
+
+        @Override public String toString() {
+            return name + attributes + ((durationNanos < 0) ? "" : ":" + getDurationMillis() + "ms") + children;
+        }
+    }
+}
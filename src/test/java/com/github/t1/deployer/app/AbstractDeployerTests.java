@@ -6,9 +6,9 @@ import com.github.t1.deployer.app.Audit.LogHandlerAudit.LogHandlerAuditBuilder;
 import com.github.t1.deployer.container.*;
 import com.github.t1.deployer.model.*;
 import com.github.t1.deployer.model.DataSourcePlan.*;
-import com.github.t1.deployer.model.Expressions.VariableName;
-import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.repository.*;
 import com.github.t1.deployer.tools.KeyStoreConfig;
+import com.github.t1.deployer.tools.Parallel;
 import com.github.t1.log.LogLevel;
 import com.github.t1.testtools.*;
 import lombok.*;
@@ -18,6 +18,7 @@ import org.jboss.dmr.ModelNode;
 import org.junit.*;
 import org.junit.runner.RunWith;
 import org.mockito.*;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.verification.VerificationMode;
 
@@ -27,6 +28,7 @@ import java.net.URI;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 
 import static com.github.t1.deployer.app.DeployerBoundary.*;
@@ -55,6 +57,11 @@ import static org.mockito.Mockito.*;
 public abstract class AbstractDeployerTests {
 
     private static final Version UNKNOWN = new Version("unknown");
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "deployer-test-parallel");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @SneakyThrows(IOException.class)
     public static Path tempDir() { return Files.createTempDirectory("deployer.test"); }
@@ -83,11 +90,18 @@ public abstract class AbstractDeployerTests {
     @Mock Instance<Deployer> deployers;
 
     @Mock Repository repository;
+    @Mock VersionIndex versionIndex;
+    @Spy Fingerprints fingerprints;
+    @Spy Parallel parallel = new Parallel(EXECUTOR);
 
     @SuppressWarnings("resource") ModelControllerClient cli = mock(ModelControllerClient.class);
     @Spy Container container = JBossCliTestClient.buildContainer(cli);
 
-    private final Map<VariableName, String> configuredVariables = new HashMap<>();
+    final ConfigProducer configProducer = new ConfigProducer();
+    private final Set<Trigger> configuredTriggers = EnumSet.allOf(Trigger.class);
+    private final Map<String, String> configuredVariables = new LinkedHashMap<>();
+    private final Map<String, String> configuredRootBundle = new LinkedHashMap<>();
+    KeyStoreConfig configuredKeyStore;
     private final List<String> managedResourceNames = new ArrayList<>();
     private final Map<String, List<String>> pinnedResourceNames = new LinkedHashMap<>();
     private final List<String> allDeployments = new ArrayList<>();
@@ -99,21 +113,17 @@ public abstract class AbstractDeployerTests {
     private final Map<String, List<Version>> versions = new LinkedHashMap<>();
 
     private String processState;
+    /** what {@link #whenCli(ModelNode)} stubbed, so the steps of a composite read can be answered from it */
+    private final Map<ModelNode, Supplier<ModelNode>> stubbedResponses = new LinkedHashMap<>();
 
     @Before
     public void before() {
-        logHandlerDeployer.managedResourceNames
-                = loggerDeployer.managedResourceNames
-                = dataSourceDeployer.managedResourceNames
-                = artifactDeployer.managedResourceNames
-                = managedResourceNames;
-        logHandlerDeployer.pinnedResourceNames
-                = loggerDeployer.pinnedResourceNames
-                = dataSourceDeployer.pinnedResourceNames
-                = artifactDeployer.pinnedResourceNames
-                = pinnedResourceNames;
         artifactDeployer.repository
                 = repository;
+        artifactDeployer.fingerprints
+                = fingerprints;
+        artifactDeployer.parallel
+                = parallel;
         logHandlerDeployer.container
                 = loggerDeployer.container
                 = dataSourceDeployer.container
@@ -125,9 +135,11 @@ public abstract class AbstractDeployerTests {
                 = dataSourceDeployer.audits
                 = artifactDeployer.audits
                 = new Audits();
-        boundary.configuredVariables = this.configuredVariables;
         boundary.deployers = this.deployers;
-        boundary.triggers = EnumSet.allOf(Trigger.class);
+        boundary.configProducer = this.configProducer;
+        boundary.repositoryProvider = () -> repository;
+        boundary.versionIndexProvider = () -> versionIndex;
+        writeConfig();
 
         //noinspection unchecked
         doAnswer(i -> {
@@ -144,6 +156,8 @@ public abstract class AbstractDeployerTests {
         whenCli(readDatasourceRequest("*", true)).then(this::allXaDataSourcesResponse);
         Arrays.stream(LogHandlerType.values()).forEach(this::stubAllLogHandlers);
         whenCli(readDeploymentRequest("*")).then(this::allDeploymentsResponse);
+        when(compositeModelNode()).then(this::compositeResponse); // snapshot reads
+        when(versionIndex.propagate(any())).then(i -> i.getArgument(0));
 
         //noinspection deprecation
         when(repository.listVersions(isA(GroupId.class), isA(ArtifactId.class), isA(Boolean.class)))
@@ -156,9 +170,54 @@ public abstract class AbstractDeployerTests {
     @SneakyThrows(IOException.class)
     private ModelNode anyModelNode() { return cli.execute(any(ModelNode.class), any(OperationMessageHandler.class)); }
 
+    @SneakyThrows(IOException.class)
+    private ModelNode compositeModelNode() {
+        return cli.execute(argThat(AbstractDeployerTests::isComposite), any(OperationMessageHandler.class));
+    }
+
+    private static boolean isComposite(ModelNode node) {
+        return node != null && node.has(OP) && node.get(OP).asString().equals(COMPOSITE);
+    }
+
+    /** answer every step with what's stubbed for it, but without calling the cli, so single reads can be verified */
+    private ModelNode compositeResponse(InvocationOnMock invocation) {
+        ModelNode result = new ModelNode();
+        List<ModelNode> steps = invocation.<ModelNode>getArgument(0).get(STEPS).asList();
+        for (int i = 0; i < steps.size(); i++) {
+            Supplier<ModelNode> response = stubbedResponses.getOrDefault(steps.get(i), () -> success(processState));
+            result.get("step-" + (i + 1)).set(response.get());
+        }
+        return success(result);
+    }
+
     @SneakyThrows(IOException.class)
     private ModelNode anyOperation() { return cli.execute(any(Operation.class), any(OperationMessageHandler.class)); }
 
+    /** read the content of the composite calls completely, as the container does, so checksums get verified */
+    public void givenCliReadsContent() {
+        when(anyOperation()).then(i -> {
+            readContent(i.getArgument(0));
+            return success(processState);
+        });
+    }
+
+    /** like {@link #givenCliReadsContent()}, but in another thread, as the remoting client of the container does */
+    public void givenCliReadsContentInOtherThread() {
+        when(anyOperation()).then(i -> {
+            EXECUTOR.submit(() -> {
+                readContent(i.getArgument(0));
+                return null;
+            }).get();
+            return success(processState);
+        });
+    }
+
+    private static void readContent(Operation operation) throws IOException {
+        for (InputStream inputStream : operation.getInputStreams())
+            while (inputStream.read() >= 0)
+                continue;
+    }
+
     @RequiredArgsConstructor
     public class OngoingCli {
         private final ModelNode request;
@@ -169,6 +228,7 @@ public abstract class AbstractDeployerTests {
 
         @SneakyThrows(IOException.class)
         public void thenRaw(Supplier<ModelNode> supplier) {
+            stubbedResponses.put(request, supplier);
             when(cli.execute(eq(request), any(OperationMessageHandler.class))).then(i -> supplier.get());
         }
     }
@@ -231,8 +291,21 @@ public abstract class AbstractDeployerTests {
         verifyNoMoreInteractions(cli);
     }
 
+    /** the resources are read with exactly this number of composite operations, and never one type after the other */
     @SneakyThrows(IOException.class) @SuppressWarnings("resource")
-    private void verifyCli(ModelNode request, VerificationMode mode) {
+    public void verifyCompositeReads(int count) {
+        verify(cli, times(count))
+                .execute(argThat(AbstractDeployerTests::isComposite), any(OperationMessageHandler.class));
+        verifyCli(readResourceRequest(rootLogger()), never());
+        verifyCli(readLoggerRequest("*"), never());
+        verifyCli(readDatasourceRequest("*", false), never());
+        verifyCli(readDatasourceRequest("*", true), never());
+        Arrays.stream(LogHandlerType.values()).forEach(type -> verifyCli(readLogHandlerRequest(type, "*"), never()));
+        verifyCli(readDeploymentRequest("*"), never());
+    }
+
+    @SneakyThrows(IOException.class) @SuppressWarnings("resource")
+    public void verifyCli(ModelNode request, VerificationMode mode) {
         verify(cli, mode).execute(eq(request), any(OperationMessageHandler.class));
     }
 
@@ -274,23 +347,59 @@ public abstract class AbstractDeployerTests {
     }
 
 
+    /** write the config file and reload it, just like the file watcher does when the config file changes */
+    @SneakyThrows(IOException.class)
+    private void writeConfig() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("triggers", configuredTriggers);
+        config.put("vars", configuredVariables);
+        config.put("root-bundle", configuredRootBundle);
+        config.put("key-store", configuredKeyStore);
+        config.put("manage", managedResourceNames);
+        config.put("pin", pinnedResourceNames);
+        Files.write(configFile(), YAML.writeValueAsBytes(config));
+        configProducer.reload();
+    }
+
+    private Path configFile() { return tempDir.resolve(ConfigProducer.DEPLOYER_CONFIG_YAML); }
+
     @SneakyThrows(IOException.class)
+    public void givenNoConfigFile() {
+        Files.delete(configFile());
+        configProducer.reload();
+    }
+
+    public void givenConfiguredTriggers(Trigger... triggers) {
+        this.configuredTriggers.clear();
+        this.configuredTriggers.addAll(asList(triggers));
+        writeConfig();
+    }
+
     public void givenConfiguredRootBundle(String key, String value) {
-        boundary.rootBundleConfig = YAML.readValue(key + ": " + value, RootBundleConfig.class);
+        this.configuredRootBundle.put(key, value);
+        writeConfig();
     }
 
-    public void givenConfiguredKeyStore(KeyStoreConfig keyStoreConfig) { boundary.keyStore = keyStoreConfig; }
+    public void givenConfiguredKeyStore(KeyStoreConfig keyStoreConfig) {
+        this.configuredKeyStore = keyStoreConfig;
+        writeConfig();
+    }
 
     public void givenConfiguredVariable(String name, String value) {
-        this.configuredVariables.put(new VariableName(name), value);
+        this.configuredVariables.put(name, value);
+        writeConfig();
     }
 
 
-    protected void givenManaged(String... resourceName) { this.managedResourceNames.addAll(asList(resourceName)); }
+    protected void givenManaged(String... resourceName) {
+        this.managedResourceNames.addAll(asList(resourceName));
+        writeConfig();
+    }
 
 
     private void givenPinned(String type, String name) {
         pinnedResourceNames.computeIfAbsent(type, k -> new ArrayList<>()).add(name);
+        writeConfig();
     }
 
 
@@ -375,6 +484,8 @@ public abstract class AbstractDeployerTests {
             @NonNull @Getter private final Version version;
             @Getter private Checksum checksum;
             private String contents;
+            /** the number of times the content of the artifact was read from the repository */
+            @Getter private int downloads;
 
             public ArtifactFixture(Version version) {
                 this.version = version;
@@ -462,7 +573,10 @@ public abstract class AbstractDeployerTests {
                         .version(this.version)
                         .type(type)
                         .checksum(checksum)
-                        .inputStreamSupplier(this::inputStream)
+                        .inputStreamSupplier(() -> {
+                            downloads++;
+                            return inputStream();
+                        })
                         .build();
             }
 
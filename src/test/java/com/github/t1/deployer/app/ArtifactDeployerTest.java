@@ -2,14 +2,24 @@ package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.app.AbstractDeployerTests.ArtifactFixtureBuilder.ArtifactFixture;
 import com.github.t1.deployer.app.Audits.Warning;
+import com.github.t1.deployer.model.Checksum;
 import com.github.t1.deployer.model.Expressions.VariableName;
+import com.github.t1.deployer.tools.*;
 import com.github.t1.problem.WebApplicationApplicationException;
 import com.google.common.collect.ImmutableMap;
+import org.jboss.dmr.ModelNode;
 import org.junit.Test;
 
+import java.io.IOException;
+
 import static com.github.t1.deployer.app.Trigger.*;
 import static com.github.t1.deployer.model.ProcessState.running;
+import static com.github.t1.deployer.testtools.ModelNodeTestTools.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Collections.*;
 import static org.assertj.core.api.Assertions.*;
+import static org.jboss.as.controller.client.helpers.ClientConstants.*;
+import static org.mockito.Mockito.*;
 
 public class ArtifactDeployerTest extends AbstractDeployerTests {
     @Test
@@ -26,6 +36,116 @@ public class ArtifactDeployerTest extends AbstractDeployerTests {
         foo.verifyDeployed(audits);
     }
 
+    @Test
+    public void shouldDeployWebArchiveWithMatchingChecksum() {
+        givenCliReadsContent();
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        foo.containing("foo-content");
+        foo.checksum(Checksum.sha1("foo-content".getBytes(UTF_8)));
+
+        Audits audits = deploy(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n"
+        );
+
+        foo.verifyDeployed(audits);
+        assertThat(foo.getDownloads()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFailBatchWhenChecksumDoesNotMatchContent() {
+        givenCliReadsContent();
+        givenArtifact("foo").version("1.3.2").containing("truncated");
+
+        Throwable thrown = catchThrowable(() -> deploy(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n"
+        ));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("checksum mismatch");
+        assertThat(capturedOperations()).hasSize(1);
+    }
+
+    @Test
+    public void shouldPostWithTrace() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        rootBundle.write(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n");
+
+        AuditsResponse response = boundary.post(false, true, emptyMap());
+
+        foo.verifyDeployed(boundary.audits);
+        assertThat(response.getTrace()).isNotNull();
+        assertThat(response.getTrace().getName()).isEqualTo("post");
+        assertThat(response.getTrace().getDurationMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(response.getTrace().getChildren()).extracting(Trace.Span::getName).containsExactly("apply");
+        assertThat(response.getTrace().toString()).contains("deploy.deployables").contains("container.commit");
+    }
+
+    @Test
+    public void shouldTraceContentReadInOtherThread() {
+        givenCliReadsContentInOtherThread();
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        foo.containing("foo-content");
+        foo.checksum(Checksum.sha1("foo-content".getBytes(UTF_8)));
+        rootBundle.write(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n");
+        long count = Metrics.histogram("deploy.content").getCount();
+
+        AuditsResponse response = boundary.post(false, true, emptyMap());
+
+        foo.verifyDeployed(boundary.audits);
+        assertThat(Metrics.histogram("deploy.content").getCount()).isEqualTo(count + 1);
+        assertThat(response.getTrace().toString()).containsPattern("deploy\\.content\\{[^}]*bytes=11[}:]");
+    }
+
+    @Test
+    public void shouldPostWithoutTrace() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        rootBundle.write(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n");
+
+        AuditsResponse response = boundary.post(false, false, emptyMap());
+
+        foo.verifyDeployed(boundary.audits);
+        assertThat(response.getTrace()).isNull();
+    }
+
+    @Test
+    public void shouldDryRunDeployWebArchive() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        rootBundle.write(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n");
+
+        AuditsResponse response = boundary.post(true, false, emptyMap());
+
+        assertThat(foo.getDownloads()).isEqualTo(0);
+        assertThat(response.getProcessState()).isNull();
+        assertThat(ModelNode.fromString(response.getOperation()).get(STEPS).asList()).containsExactly(toModelNode("{\n"
+                + "    'operation' => 'add',\n"
+                + "    'address' => [('deployment' => 'foo.war')],\n"
+                + "    'enabled' => true,\n"
+                + "    'content' => [('input-stream-index' => 0)]\n"
+                + "}"));
+        assertThat(response.getAudits()).containsExactly(foo.addedAudit());
+    }
+
     @Test
     public void shouldDeployWebArchiveEvenWithInvalidSystemProperty() {
         systemProperties.given("foo:bar", "foobar");
@@ -104,6 +224,23 @@ public class ArtifactDeployerTest extends AbstractDeployerTests {
         foo.verifyDeployed(audits);
     }
 
+    @Test
+    public void shouldSkipRepositoryWhenFingerprintIsUnchanged() {
+        givenArtifact("foo").version("1.3.2").deployed();
+        String plan = ""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.2\n";
+        deploy(plan);
+        clearInvocations(repository);
+
+        Audits audits = deploy(plan);
+
+        assertThat(audits.getAudits()).isEmpty();
+        verifyZeroInteractions(repository);
+    }
+
     @Test
     public void shouldFailToUpdateWebArchiveWithIncorrectChecksum() {
         givenArtifact("foo").version("1.3.1").deployed();
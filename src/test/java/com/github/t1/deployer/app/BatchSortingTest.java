@@ -1,7 +1,12 @@
 package com.github.t1.deployer.app;
 
+import org.jboss.as.controller.client.Operation;
+import org.jboss.dmr.ModelNode;
 import org.junit.Test;
 
+import java.util.List;
+
+import static com.github.t1.deployer.container.JBossCliTestClient.*;
 import static com.github.t1.deployer.model.LogHandlerType.*;
 import static com.github.t1.log.LogLevel.*;
 import static org.assertj.core.api.Assertions.*;
@@ -64,4 +69,65 @@ public class BatchSortingTest extends AbstractDeployerTests {
                 .as("remove handler last")
                 .contains("\"periodic-rotating-file-handler\" => \"FOO\"");
     }
+
+    @Test
+    public void shouldSortRootLoggerLikeOtherLoggers() {
+        LogHandlerFixture handler = givenLogHandler(periodicRotatingFile, "FOO")
+                .level(ALL)
+                .file("the-file")
+                .suffix("the-suffix")
+                .format("the-format");
+
+        Audits audits = deploy(""
+                + "loggers:\n"
+                + "  ROOT:\n"
+                + "    level: DEBUG\n"
+                + "    handlers: [CONSOLE, FILE]\n"
+                + "log-handlers:\n"
+                + "  FOO:\n"
+                + "    type: periodic-rotating-file\n"
+                + "    level: ALL\n"
+                + "    file: the-file\n"
+                + "    suffix: the-suffix\n"
+                + "    format: the-format\n");
+
+        handler.verifyAdded(audits);
+        verifyWriteAttribute(rootLoggerNode(), "level", "DEBUG");
+        assertThat(steps()).hasSize(2);
+        assertThat(steps().get(0).get(ADDRESS).toString())
+                .as("add handler first")
+                .contains("\"periodic-rotating-file-handler\" => \"FOO\"");
+        assertThat(steps().get(1).get(ADDRESS).toString())
+                .as("update root logger last")
+                .contains("\"root-logger\" => \"ROOT\"");
+    }
+
+    @Test
+    public void shouldCommitDeployablesInChunks() {
+        deploymentChunkSize(container, 2);
+        givenArtifact("foo").version("1.3.1");
+        givenArtifact("bar").version("1.3.2");
+        givenArtifact("baz").version("1.3.3");
+
+        deploy(""
+                + "deployables:\n"
+                + "  foo:\n"
+                + "    group-id: org.foo\n"
+                + "    version: 1.3.1\n"
+                + "  bar:\n"
+                + "    group-id: org.bar\n"
+                + "    version: 1.3.2\n"
+                + "  baz:\n"
+                + "    group-id: org.baz\n"
+                + "    version: 1.3.3\n");
+
+        List<Operation> chunks = capturedOperations();
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getOperation().get(STEPS).asList()).hasSize(2);
+        assertThat(chunks.get(0).getInputStreams()).hasSize(2);
+        ModelNode last = chunks.get(1).getOperation().get(STEPS).get(0);
+        assertThat(last.get(ADDRESS).toString()).contains("\"deployment\" => \"baz.war\"");
+        assertThat(last.get(CONTENT).get(0).get(INPUT_STREAM_INDEX).asInt()).isEqualTo(0);
+        assertThat(chunks.get(1).getInputStreams()).hasSize(1);
+    }
 }
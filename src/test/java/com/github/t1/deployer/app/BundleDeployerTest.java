@@ -18,6 +18,7 @@ import static com.github.t1.deployer.testtools.TestData.*;
 import static com.github.t1.log.LogLevel.*;
 import static java.util.Collections.*;
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 public class BundleDeployerTest extends AbstractDeployerTests {
     private static final KeyStoreConfig KEYSTORE = KeyStoreConfig
@@ -29,7 +30,7 @@ public class BundleDeployerTest extends AbstractDeployerTests {
 
     private final CipherFacade cipher = new CipherFacade();
 
-    private String encrypt(String plain) throws Exception { return cipher.encrypt(plain, boundary.keyStore); }
+    private String encrypt(String plain) throws Exception { return cipher.encrypt(plain, configuredKeyStore); }
 
     private static final Checksum UNKNOWN_CHECKSUM = Checksum.ofHexString("9999999999999999999999999999999999999999");
 
@@ -341,7 +342,7 @@ public class BundleDeployerTest extends AbstractDeployerTests {
         ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
         givenConfiguredKeyStore(KEYSTORE);
 
-        String secret = cipher.encrypt(foo.getVersion().getValue(), boundary.keyStore.withAlias("keypair"));
+        String secret = cipher.encrypt(foo.getVersion().getValue(), configuredKeyStore.withAlias("keypair"));
         Audits audits = deploy(""
                 + "deployables:\n"
                 + "  foo:\n"
@@ -1219,6 +1220,78 @@ public class BundleDeployerTest extends AbstractDeployerTests {
     }
 
 
+    @Test
+    public void shouldFetchEachBundleOnlyOnceAndApplyInstancesInPlanOrder() {
+        ArtifactFixture foo = givenArtifact("foo", "org.foo", "foo-war").version("1");
+        ArtifactFixture bar = givenArtifact("bar", "org.foo", "foo-war").version("2");
+        ArtifactFixture baz = givenArtifact("baz", "org.baz", "baz-war").version("3");
+        ArtifactFixture named = givenArtifact(bundle, "artifact-deployer-test", "named-bundle").version("1");
+        named.containing(""
+                + "deployables:\n"
+                + "  ${name}:\n"
+                + "    group-id: org.foo\n"
+                + "    artifact-id: foo-war\n"
+                + "    version: ${v}\n");
+        ArtifactFixture single = givenArtifact(bundle, "artifact-deployer-test", "single-bundle").version("1");
+        single.containing(""
+                + "deployables:\n"
+                + "  baz:\n"
+                + "    group-id: org.baz\n"
+                + "    artifact-id: baz-war\n"
+                + "    version: 3\n");
+
+        Audits audits = deploy(""
+                + "bundles:\n"
+                + "  named-bundle:\n"
+                + "    group-id: artifact-deployer-test\n"
+                + "    version: 1\n"
+                + "    instances:\n"
+                + "      foo:\n"
+                + "        v: 1\n"
+                + "      bar:\n"
+                + "        v: 2\n"
+                + "  single-bundle:\n"
+                + "    group-id: artifact-deployer-test\n"
+                + "    version: 1\n");
+
+        verify(repository).resolveArtifact(named.groupId(), named.artifactId(), named.getVersion(), bundle, null);
+        verify(repository).resolveArtifact(single.groupId(), single.artifactId(), single.getVersion(), bundle, null);
+        foo.verifyDeployed(audits);
+        bar.verifyDeployed(audits);
+        baz.verifyDeployed(audits);
+        assertThat(audits.getAudits()).containsExactly(foo.addedAudit(), bar.addedAudit(), baz.addedAudit());
+    }
+
+
+    @Test
+    public void shouldTimeEveryPlanAndBundleInstance() {
+        givenArtifact("foo", "org.foo", "foo-war").version("1");
+        givenArtifact("bar", "org.foo", "foo-war").version("2");
+        givenArtifact(bundle, "artifact-deployer-test", "named-bundle").version("1").containing(""
+                + "deployables:\n"
+                + "  ${name}:\n"
+                + "    group-id: org.foo\n"
+                + "    artifact-id: foo-war\n"
+                + "    version: ${v}\n");
+        long plans = Metrics.histogram("apply-plan").getCount();
+        long bundles = Metrics.histogram("apply-bundle").getCount();
+
+        deploy(""
+                + "bundles:\n"
+                + "  named-bundle:\n"
+                + "    group-id: artifact-deployer-test\n"
+                + "    version: 1\n"
+                + "    instances:\n"
+                + "      foo:\n"
+                + "        v: 1\n"
+                + "      bar:\n"
+                + "        v: 2\n");
+
+        assertThat(Metrics.histogram("apply-plan").getCount()).isEqualTo(plans + 3);
+        assertThat(Metrics.histogram("apply-bundle").getCount()).isEqualTo(bundles + 2);
+    }
+
+
     @Test
     public void shouldDeployLatestBundle() {
         ArtifactFixture latest = givenArtifact("jolokia", "org.jolokia", "jolokia-war")
@@ -1350,7 +1423,7 @@ public class BundleDeployerTest extends AbstractDeployerTests {
 
     @Test
     public void shouldFailToDeployDefaultRootBundleWithoutConfigFile() throws Exception {
-        boundary.useDefaultConfig = true;
+        givenNoConfigFile();
 
         Throwable thrown = catchThrowable(() -> boundary.apply(post, ImmutableMap.of(VERSION, "1.2")));
 
@@ -1358,6 +1431,41 @@ public class BundleDeployerTest extends AbstractDeployerTests {
                 "applying the default root bundle is only allowed when there is a configuration file");
     }
 
+    @Test
+    public void shouldApplyVariablesOfReloadedConfig() {
+        LoggerFixture debug = givenLogger("com.github.t1.deployer.app").level(DEBUG);
+        givenConfiguredVariable("log-level", "DEBUG");
+        deploy(""
+                + "loggers:\n"
+                + "  com.github.t1.deployer.app:\n"
+                + "    level: ${log-level}\n");
+
+        LoggerFixture info = givenLogger("com.github.t1.deployer.app").level(INFO);
+        givenConfiguredVariable("log-level", "INFO");
+        Audits audits = deploy(""
+                + "loggers:\n"
+                + "  com.github.t1.deployer.app:\n"
+                + "    level: ${log-level}\n");
+
+        debug.verifyAdded(audits);
+        info.verifyAdded(audits);
+    }
+
+    @Test
+    public void shouldIgnoreTriggerDisabledByReloadedConfig() {
+        LoggerFixture fixture = givenLogger("com.github.t1.deployer.app").level(DEBUG);
+        Audits audits = deploy(""
+                + "loggers:\n"
+                + "  com.github.t1.deployer.app:\n"
+                + "    level: DEBUG\n");
+
+        givenConfiguredTriggers(startup, fileChange);
+        boundary.apply(post, emptyMap());
+
+        fixture.verifyAdded(audits);
+        verify(container, times(1)).startBatch();
+    }
+
     @Test
     public void shouldDeployDefaultRootBundle() throws Exception {
         ArtifactFixture jolokia = givenArtifact("jolokia").version("1.3.2");
@@ -186,7 +186,7 @@ public class ConfigSerializationTest {
 
         ConfigProducer producer = loadConfig();
 
-        assertThat(producer.managedResources()).containsExactly("deployables");
+        assertThat(producer.getConfig().managedResources()).containsExactly("deployables");
     }
 
 
@@ -242,7 +242,7 @@ public class ConfigSerializationTest {
 
         ConfigProducer producer = loadConfig();
 
-        assertThat(producer.pinned().get("deployables")).containsExactly("foo");
+        assertThat(producer.getConfig().pinnedResources().get("deployables")).containsExactly("foo");
     }
 
     @Test
@@ -253,7 +253,7 @@ public class ConfigSerializationTest {
 
         ConfigProducer producer = loadConfig();
 
-        assertThat(producer.pinned().get("deployables")).containsExactly("foo", "bar");
+        assertThat(producer.getConfig().pinnedResources().get("deployables")).containsExactly("foo", "bar");
     }
 
 
@@ -342,4 +342,46 @@ public class ConfigSerializationTest {
 
         assertThat(producer.triggers()).containsExactly(startup, post, fileChange);
     }
+
+    @Test
+    public void shouldLoadConfigFileWithFileChangeQuietWindow() throws Exception {
+        configFile.write(""
+                + "file-change-quiet-window: 2 s");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.fileChangeQuietWindow()).isEqualTo(new Age("2 s"));
+    }
+
+    @Test
+    public void shouldLoadConfigFileWithDeploymentChunkSize() throws Exception {
+        configFile.write(""
+                + "deployment-chunk-size: 10");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.deploymentChunkSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldReloadChangedConfigFile() throws Exception {
+        configFile.write("triggers: [startup]");
+        ConfigProducer producer = loadConfig();
+
+        configFile.write("triggers: [post]");
+        producer.reload();
+
+        assertThat(producer.triggers()).containsExactly(post);
+    }
+
+    @Test
+    public void shouldKeepConfigWhenReloadingInvalidConfigFile() throws Exception {
+        configFile.write("triggers: [startup]");
+        ConfigProducer producer = loadConfig();
+
+        configFile.write("triggers: [no-such-trigger]");
+        producer.reload();
+
+        assertThat(producer.triggers()).containsExactly(startup);
+    }
 }
@@ -5,8 +5,11 @@ import com.github.t1.problem.WebApplicationApplicationException;
 import org.junit.Test;
 
 import static com.github.t1.deployer.model.ProcessState.*;
+import static java.util.Collections.*;
 import static org.assertj.core.api.Assertions.*;
+import static com.github.t1.deployer.testtools.ModelNodeTestTools.*;
 import static org.jboss.as.controller.client.helpers.ClientConstants.*;
+import static org.mockito.Mockito.*;
 
 public class DataSourceDeployerTest extends AbstractDeployerTests {
     @Test
@@ -123,6 +126,40 @@ public class DataSourceDeployerTest extends AbstractDeployerTests {
         foo.userName("foo").password("bar").verifyAdded(audits);
     }
 
+    @Test
+    public void shouldConcealUserNameAndPasswordInDryRun() {
+        givenDataSource("foo");
+        rootBundle.write(""
+                + "data-sources:\n"
+                + "  foo:\n"
+                + "    uri: jdbc:h2:mem:foo\n"
+                + "    user-name: secret-user\n"
+                + "    password: secret-password\n");
+
+        AuditsResponse response = boundary.post(true, false, emptyMap());
+
+        assertThat(response.getOperation())
+                .doesNotContain("secret-user")
+                .doesNotContain("secret-password")
+                .contains("\"password\" => \"concealed\"");
+    }
+
+    @Test
+    public void shouldConcealUpdatedPasswordInDryRun() {
+        givenDataSource("foo").password("bar").deployed();
+        rootBundle.write(""
+                + "data-sources:\n"
+                + "  foo:\n"
+                + "    uri: jdbc:h2:mem:foo\n"
+                + "    password: secret-password\n");
+
+        AuditsResponse response = boundary.post(true, false, emptyMap());
+
+        assertThat(response.getOperation())
+                .doesNotContain("secret-password")
+                .contains("\"value\" => \"concealed\"");
+    }
+
     @Test
     public void shouldAddDataSourceWithMinPoolSize() {
         DataSourceFixture foo = givenDataSource("foo");
@@ -398,6 +435,58 @@ public class DataSourceDeployerTest extends AbstractDeployerTests {
                 Audit.DataSourceAudit.of(fixture.getName()).change("xa", true, null).changed());
     }
 
+    @Test
+    public void shouldNotMatchNonXaDataSourceWhenXaDataSourceWithSameNameExists() {
+        givenDataSource("foo").deployed();
+        givenDataSource("foo")
+                .xa(true)
+                .uri("jdbc:postgresql://my-db.server.lan/foo")
+                .driver("postgresql")
+                .deployed();
+
+        Audits audits = deploy(""
+                + "data-sources:\n"
+                + "  foo:\n"
+                + "    uri: jdbc:postgresql://my-db.server.lan/foo\n"
+                + "    xa: true\n");
+
+        // #after(): no remove nor add
+        assertThat(audits.getAudits()).isEmpty();
+    }
+
+    @Test
+    public void shouldNotMatchXaDataSourceWhenNonXaDataSourceWithSameNameExists() {
+        givenDataSource("foo")
+                .xa(true)
+                .uri("jdbc:postgresql://my-db.server.lan/foo")
+                .driver("postgresql")
+                .deployed();
+        givenDataSource("foo").deployed();
+
+        Audits audits = deploy(""
+                + "data-sources:\n"
+                + "  foo:\n"
+                + "    uri: jdbc:h2:mem:foo\n");
+
+        // #after(): no remove nor add
+        assertThat(audits.getAudits()).isEmpty();
+    }
+
+    @Test
+    public void shouldAddDataSourceMissingFromAllDataSourcesWithoutReadingItSingly() {
+        givenDataSource("bar").deployed();
+        DataSourceFixture foo = givenDataSource("foo");
+
+        Audits audits = deploy(""
+                + "data-sources:\n"
+                + "  foo:\n"
+                + "    uri: jdbc:h2:mem:foo\n");
+
+        verifyCli(readDatasourceRequest("foo", false), never());
+        verifyCli(readDatasourceRequest("foo", true), never());
+        foo.verifyAdded(audits);
+    }
+
 
     @Test
     public void shouldRemoveExistingDataSourceWhenStateIsUndeployed() {
@@ -0,0 +1,82 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.model.*;
+import org.junit.Test;
+
+import java.nio.file.Path;
+
+import static com.github.t1.deployer.app.AbstractDeployerTests.*;
+import static com.github.t1.deployer.model.ArtifactType.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class FingerprintsTest {
+    private static final Checksum CHECKSUM = Checksum.fromString("2ea859259d7a9e270b4484facdcba5fe3f1f7578");
+    private static final Checksum OTHER = Checksum.fromString("face000097269fd347ce0e93059890430c01f17f");
+
+    private final Path file = tempDir().resolve("deployer.fingerprints");
+
+    private Fingerprints fingerprints() {
+        Fingerprints fingerprints = new Fingerprints();
+        fingerprints.file = file;
+        return fingerprints;
+    }
+
+    private static DeployablePlan plan(String version) {
+        return DeployablePlan.builder()
+                             .name(new DeploymentName("foo"))
+                             .groupId(new GroupId("org.foo"))
+                             .artifactId(new ArtifactId("foo"))
+                             .version(new Version(version))
+                             .type(war)
+                             .build();
+    }
+
+    @Test
+    public void shouldMatchOnlyCommittedChecksumOfSameVersion() {
+        Fingerprints fingerprints = fingerprints();
+        fingerprints.startApply();
+        fingerprints.stage(plan("1.0"), CHECKSUM);
+
+        assertThat(fingerprints.matches(plan("1.0"), CHECKSUM)).isFalse();
+
+        fingerprints.commit();
+
+        assertThat(fingerprints.matches(plan("1.0"), CHECKSUM)).isTrue();
+        assertThat(fingerprints.matches(plan("1.0"), OTHER)).isFalse();
+        assertThat(fingerprints.matches(plan("1.1"), CHECKSUM)).isFalse();
+    }
+
+    @Test
+    public void shouldForgetStagedChecksumsOnNextApply() {
+        Fingerprints fingerprints = fingerprints();
+        fingerprints.startApply();
+        fingerprints.stage(plan("1.0"), CHECKSUM);
+
+        fingerprints.startApply();
+        fingerprints.commit();
+
+        assertThat(fingerprints.matches(plan("1.0"), CHECKSUM)).isFalse();
+    }
+
+    @Test
+    public void shouldNeverMatchSnapshotsOrVersionExpressions() {
+        Fingerprints fingerprints = fingerprints();
+        fingerprints.startApply();
+        fingerprints.stage(plan("1.0-SNAPSHOT"), CHECKSUM);
+        fingerprints.stage(plan("LATEST"), CHECKSUM);
+        fingerprints.commit();
+
+        assertThat(fingerprints.matches(plan("1.0-SNAPSHOT"), CHECKSUM)).isFalse();
+        assertThat(fingerprints.matches(plan("LATEST"), CHECKSUM)).isFalse();
+    }
+
+    @Test
+    public void shouldLoadCommittedChecksumsAfterRestart() {
+        Fingerprints fingerprints = fingerprints();
+        fingerprints.startApply();
+        fingerprints.stage(plan("1.0"), CHECKSUM);
+        fingerprints.commit();
+
+        assertThat(fingerprints().matches(plan("1.0"), CHECKSUM)).isTrue();
+    }
+}
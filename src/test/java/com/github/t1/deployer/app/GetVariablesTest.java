@@ -38,13 +38,16 @@ public class GetVariablesTest {
             .given(CLI_DEBUG, "true");
 
     @Rule public FileMemento rootBundleConfigFile = new FileMemento(tempDir.resolve(ROOT_BUNDLE_CONFIG_FILE));
+    @Rule public FileMemento configFile = new FileMemento(tempDir.resolve(ConfigProducer.DEPLOYER_CONFIG_YAML));
 
     DeployerBoundary boundary = new DeployerBoundary();
+    ConfigProducer configProducer = new ConfigProducer();
     Repository repository = mock(Repository.class);
 
     @Before
     public void setUp() throws Exception {
-        boundary.repository = repository;
+        boundary.configProducer = configProducer;
+        boundary.repositoryProvider = () -> repository;
     }
 
     private static String toJson(Object object) throws IOException {
@@ -65,12 +68,12 @@ public class GetVariablesTest {
 
     @Test
     public void shouldGetConfiguredRootBundle() throws Exception {
-        boundary.rootBundleConfig = RootBundleConfig
-                .builder()
-                .groupId(DUMMY_GROUP_ID)
-                .artifactId(DUMMY_ARTIFACT_ID)
-                .version(DUMMY_VERSION)
-                .build();
+        configFile.write(""
+                + "root-bundle:\n"
+                + "  group-id: " + DUMMY_GROUP_ID + "\n"
+                + "  artifact-id: " + DUMMY_ARTIFACT_ID + "\n"
+                + "  version: " + DUMMY_VERSION + "\n");
+        configProducer.reload();
         when(repository.resolveArtifact(DUMMY_GROUP_ID, DUMMY_ARTIFACT_ID, DUMMY_VERSION, bundle, null))
                 .thenReturn(Artifact
                         .builder()
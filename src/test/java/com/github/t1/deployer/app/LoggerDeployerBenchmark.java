@@ -0,0 +1,111 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.app.ConfigProducer.DeployerConfig;
+import com.github.t1.deployer.container.*;
+import com.github.t1.deployer.model.*;
+import org.jboss.as.controller.client.*;
+import org.jboss.dmr.ModelNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.t1.deployer.testtools.ModelNodeTestTools.*;
+import static com.github.t1.log.LogLevel.*;
+import static org.jboss.as.controller.client.helpers.ClientConstants.*;
+import static org.jboss.as.controller.client.helpers.Operations.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Applies a plan with <code>loggers</code> loggers that all exist and all change their level, so the bookkeeping
+ * of the remaining resources is exercised for every one of them. The management client is a stub-only mock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoggerDeployerBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoggerDeployerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final ModelNode ALL_LOGGERS = createAddress("subsystem", "logging", "logger", "*");
+    private static final ModelNode ROOT_LOGGER = createAddress("subsystem", "logging", "root-logger", "ROOT");
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int loggers;
+
+    private Container container;
+    private LoggerDeployer deployer;
+    private final DeployerConfig config = DeployerConfig.builder().managedResourceName("loggers").build();
+    private Plan plan;
+    private ModelNode existing;
+
+    @Setup
+    public void setup() throws IOException {
+        existing = new ModelNode().setEmptyList();
+        Plan.PlanBuilder builder = Plan.builder();
+        for (int i = 0; i < loggers; i++) {
+            String category = "com.github.t1.benchmark.logger" + i;
+            existing.add(existingLogger(category));
+            builder.logger(LoggerPlan.builder()
+                                     .category(LoggerCategory.of(category))
+                                     .state(DeploymentState.deployed)
+                                     .level(DEBUG)
+                                     .build());
+        }
+        plan = builder.build();
+
+        ModelControllerClient cli = mock(ModelControllerClient.class, withSettings().stubOnly());
+        when(cli.execute(any(ModelNode.class), any(OperationMessageHandler.class)))
+                .then(i -> response(i.getArgument(0)));
+        container = JBossCliTestClient.buildContainer(cli);
+
+        deployer = new LoggerDeployer();
+        deployer.container = container;
+    }
+
+    private static ModelNode existingLogger(String category) {
+        ModelNode node = new ModelNode();
+        node.get(ADDRESS).set(createAddress("subsystem", "logging", "logger", category));
+        node.get(OUTCOME).set(SUCCESS);
+        node.get(RESULT, "level").set("INFO");
+        node.get(RESULT, "use-parent-handlers").set(true);
+        return node;
+    }
+
+    private ModelNode response(ModelNode request) {
+        if (request.get(OP).asString().equals(COMPOSITE)) {
+            ModelNode result = new ModelNode();
+            List<ModelNode> steps = request.get(STEPS).asList();
+            for (int i = 0; i < steps.size(); i++)
+                result.get("step-" + (i + 1)).set(response(steps.get(i)));
+            return success(result);
+        }
+        ModelNode address = request.get(ADDRESS);
+        if (address.equals(ALL_LOGGERS))
+            return success(existing);
+        if (address.equals(ROOT_LOGGER))
+            return success(toModelNode("{'level' => 'INFO', 'handlers' => ['CONSOLE']}"));
+        return success(new ModelNode().setEmptyList());
+    }
+
+    @Benchmark
+    public Audits apply() {
+        deployer.audits = new Audits();
+        container.startBatch();
+        try {
+            deployer.apply(plan, config);
+        } finally {
+            container.rollbackBatch();
+        }
+        return deployer.audits;
+    }
+}
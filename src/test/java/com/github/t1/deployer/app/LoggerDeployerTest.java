@@ -9,6 +9,7 @@ import static com.github.t1.deployer.model.LoggerCategory.*;
 import static com.github.t1.deployer.testtools.ModelNodeTestTools.*;
 import static com.github.t1.log.LogLevel.*;
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 public class LoggerDeployerTest extends AbstractDeployerTests {
     @Test
@@ -53,6 +54,35 @@ public class LoggerDeployerTest extends AbstractDeployerTests {
     }
 
 
+    @Test
+    public void shouldTakeExistingLoggerFromAllLoggersWithoutReadingItSingly() {
+        givenLogger("com.github.t1.deployer.app").level(DEBUG).deployed();
+        givenLogger("com.github.t1.deployer.other").level(INFO).deployed();
+
+        Audits audits = deploy(""
+                + "loggers:\n"
+                + "  com.github.t1.deployer.app:\n"
+                + "    level: DEBUG\n");
+
+        verifyCli(readLoggerRequest("com.github.t1.deployer.app"), never());
+        assertThat(audits.getAudits()).isEmpty();
+    }
+
+    @Test
+    public void shouldAddLoggerMissingFromAllLoggersWithoutReadingItSingly() {
+        givenLogger("com.github.t1.deployer.other").level(INFO).deployed();
+        LoggerFixture fixture = givenLogger("com.github.t1.deployer.app").level(DEBUG);
+
+        Audits audits = deploy(""
+                + "loggers:\n"
+                + "  com.github.t1.deployer.app:\n"
+                + "    level: DEBUG\n");
+
+        verifyCli(readLoggerRequest("com.github.t1.deployer.app"), never());
+        fixture.verifyAdded(audits);
+    }
+
+
     @Test
     public void shouldUpdateLogLevel() {
         LoggerFixture fixture = givenLogger("com.github.t1.deployer.app").level(DEBUG).deployed();
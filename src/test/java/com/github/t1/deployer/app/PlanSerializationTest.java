@@ -9,11 +9,14 @@ import org.junit.Test;
 import java.io.StringReader;
 import java.net.URI;
 import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.github.t1.deployer.model.ArtifactType.*;
 import static com.github.t1.deployer.model.LogHandlerType.*;
 import static com.github.t1.deployer.testtools.TestData.*;
 import static com.github.t1.log.LogLevel.*;
+import static java.util.stream.Collectors.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -65,6 +68,19 @@ public class PlanSerializationTest {
             .deployable(FOO)
             .build();
 
+    @Test
+    public void shouldDeserializePlansConcurrentlyWithTheirOwnExpressions() throws Exception {
+        List<String> versions = IntStream.rangeClosed(1, 20).mapToObj(Integer::toString).collect(toList());
+
+        List<Plan> plans = versions.parallelStream().map(version -> Plan.load(
+                new Expressions().with(new VariableName("foo-version"), version),
+                new StringReader(ONE_DEPLOYMENT_YAML.replace("version: 1", "version: ${foo-version}")),
+                "yaml-" + version)).collect(toList());
+
+        assertThat(plans).extracting(plan -> plan.deployables().findAny().get().getVersion().getValue())
+                         .containsExactlyElementsOf(versions);
+    }
+
     @Test
     public void shouldDeserializePlanWithOneDeployment() throws Exception {
         Plan plan = Plan.load(expressions, new StringReader(ONE_DEPLOYMENT_YAML), "yaml1");
@@ -186,4 +186,25 @@ public class ReadEffectivePlanTest extends AbstractDeployerTests {
         assertThat(dataSources(plan))
                 .containsExactly(bar.password(null).asPlan(), foo.password(null).asPlan()); // sorted!
     }
+
+
+    @Test
+    public void shouldReadAllResourcesWithOneCompositeOperationPerApplyAndPerRead() throws Exception {
+        givenLogHandler(periodicRotatingFile, "foo").deployed();
+        LoggerFixture foo = givenLogger("foo").level(DEBUG).deployed();
+        givenDataSource("foo").deployed();
+        givenArtifact("foo").version("1").deployed();
+
+        deploy(""
+                + "loggers:\n"
+                + "  foo:\n"
+                + "    level: DEBUG\n");
+
+        verifyCompositeReads(1);
+
+        Plan plan = boundary.getEffectivePlan();
+
+        verifyCompositeReads(2);
+        assertThat(loggers(plan)).containsExactly(ROOT, foo.asPlan());
+    }
 }
@@ -0,0 +1,80 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.app.Audit.*;
+import com.github.t1.deployer.model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.t1.deployer.model.ArtifactType.*;
+import static com.github.t1.deployer.model.LogHandlerType.*;
+import static com.github.t1.deployer.model.ProcessState.*;
+import static com.github.t1.log.LogLevel.*;
+import static javax.ws.rs.core.MediaType.*;
+
+/**
+ * Writes the responses of the deployer for <code>size</code> resources of every type: the effective plan as html,
+ * and the audits of an apply as yaml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResponseWriterBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseWriterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private final EffectivePlanHtmlWriter writer = new EffectivePlanHtmlWriter();
+    private Plan plan;
+    private Audits audits;
+
+    @Setup
+    public void setup() {
+        Plan.PlanBuilder builder = Plan.builder();
+        audits = new Audits().setProcessState(running);
+        for (int i = 0; i < size; i++) {
+            builder.logHandler(LogHandlerPlan.builder()
+                                             .name(new LogHandlerName("HANDLER" + i))
+                                             .level(DEBUG)
+                                             .file("handler" + i + ".log")
+                                             .type(periodicRotatingFile)
+                                             .build());
+            builder.logger(LoggerPlan.builder()
+                                     .category(LoggerCategory.of("org.foo.app" + i))
+                                     .handler("HANDLER" + i)
+                                     .level(INFO)
+                                     .build());
+            builder.deployable(DeployablePlan.builder()
+                                             .name(new DeploymentName("app" + i))
+                                             .groupId(new GroupId("org.foo"))
+                                             .artifactId(new ArtifactId("app" + i))
+                                             .version(new Version("1." + i))
+                                             .type(war)
+                                             .build());
+            audits.add(LoggerAudit.of(LoggerCategory.of("org.foo.app" + i)).change("level", INFO, DEBUG).changed());
+            audits.add(DeployableAudit.builder().name("app" + i).change("version", "1.0", "1." + i).changed());
+        }
+        plan = builder.build();
+    }
+
+    @Benchmark
+    public int html() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(plan, Plan.class, Plan.class, null, TEXT_HTML_TYPE, null, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public String auditsYaml() { return audits.toYaml(); }
+}
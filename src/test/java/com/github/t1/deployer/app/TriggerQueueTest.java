@@ -0,0 +1,120 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.model.Age;
+import com.github.t1.deployer.tools.Metrics;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.github.t1.deployer.app.Trigger.*;
+import static java.util.concurrent.TimeUnit.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TriggerQueueTest {
+    private final List<Trigger> applied = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<ScheduledFuture<?>> futures = new ArrayList<>();
+
+    private final TriggerQueue queue = new TriggerQueue(new Age("50 ms"), applied::add, executor);
+
+    @Before
+    public void setUp() {
+        when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).then(i -> {
+            scheduled.add(i.getArgument(0));
+            ScheduledFuture<?> future = mock(ScheduledFuture.class);
+            futures.add(future);
+            return future;
+        });
+    }
+
+    @After public void tearDown() { queue.shutdown(); }
+
+    /** run the apply that is scheduled last, i.e. the one that's not cancelled */
+    private void quietWindowPassed() { scheduled.get(scheduled.size() - 1).run(); }
+
+    @Test
+    public void shouldCoalesceTriggersWithinQuietWindow() throws Exception {
+        queue.submit(fileChange);
+        queue.submit(fileChange);
+        queue.submit(fileChange);
+
+        quietWindowPassed();
+
+        assertThat(applied).containsExactly(fileChange);
+        assertThat(queue.getQueueDepth()).isEqualTo(0);
+        assertThat(queue.getCoalesced()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRescheduleAfterEveryTrigger() throws Exception {
+        queue.submit(fileChange);
+        queue.submit(fileChange);
+
+        verify(executor, times(2)).schedule(any(Runnable.class), eq(50L), eq(MILLISECONDS));
+        verify(futures.get(0)).cancel(false);
+        verify(futures.get(1), never()).cancel(anyBoolean());
+        assertThat(applied).isEmpty();
+    }
+
+    @Test
+    public void shouldApplyEachKindOfTriggerOnce() throws Exception {
+        queue.submit(fileChange);
+        queue.submit(post);
+        queue.submit(fileChange);
+
+        quietWindowPassed();
+
+        assertThat(applied).containsExactly(post, fileChange);
+        assertThat(queue.getCoalesced()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldApplyAgainAfterQuietWindow() throws Exception {
+        queue.submit(fileChange);
+        quietWindowPassed();
+
+        queue.submit(fileChange);
+        quietWindowPassed();
+
+        assertThat(applied).containsExactly(fileChange, fileChange);
+        assertThat(queue.getCoalesced()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldExportQueueDepthAndCoalescedAsMetrics() throws Exception {
+        queue.submit(fileChange);
+        queue.submit(fileChange);
+
+        assertThat(Metrics.toPrometheus())
+                .contains("deployer_trigger_queue_depth 2\n")
+                .contains("deployer_triggers_coalesced_total 1\n");
+
+        quietWindowPassed();
+        assertThat(Metrics.toPrometheus()).contains("deployer_trigger_queue_depth 0\n");
+    }
+
+    @Test
+    public void shouldRemoveMetricsOnShutdown() {
+        queue.shutdown();
+
+        assertThat(Metrics.toPrometheus()).doesNotContain("deployer_trigger_queue_depth");
+        verify(executor).shutdownNow();
+    }
+
+    @Test
+    public void shouldApplyAfterQuietWindowWithRealExecutor() throws Exception {
+        Semaphore applies = new Semaphore(0);
+        TriggerQueue real = new TriggerQueue(new Age("50 ms"), trigger -> applies.release());
+        try {
+            real.submit(fileChange);
+
+            assertThat(applies.tryAcquire(2, SECONDS)).isTrue();
+        } finally {
+            real.shutdown();
+        }
+    }
+}
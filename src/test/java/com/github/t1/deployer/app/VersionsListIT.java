@@ -1,6 +1,7 @@
 package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.model.*;
+import com.github.t1.deployer.repository.Repository;
 import org.junit.*;
 
 import java.util.List;
@@ -16,7 +17,8 @@ public class VersionsListIT {
 
     @Before
     public void setUp() throws Exception {
-        boundary.repository = createMavenCentralRepository();
+        Repository repository = createMavenCentralRepository();
+        boundary.repositoryProvider = () -> repository;
     }
 
     @Test
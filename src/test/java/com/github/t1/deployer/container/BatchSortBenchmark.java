@@ -0,0 +1,60 @@
+package com.github.t1.deployer.container;
+
+import org.jboss.dmr.ModelNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.jboss.as.controller.client.helpers.Operations.*;
+
+/**
+ * Sorts a batch of <code>steps</code> random adds, updates, and removes of all resource types into the order they
+ * have to be executed in, via the preview, so the batch isn't sent anywhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchSortBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchSortBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final String[] OPERATIONS = { "add", "write-attribute", "map-put", "remove" };
+    private static final String[][] ADDRESSES = {
+            { "subsystem", "logging", "logger", "org.foo" },
+            { "subsystem", "logging", "periodic-rotating-file-handler", "FOO" },
+            { "subsystem", "datasources", "data-source", "foo" },
+            { "deployment", "foo.war" },
+    };
+
+    @Param({ "10000" })
+    public int steps;
+
+    private Batch batch;
+
+    @Setup
+    public void setup() {
+        batch = new Batch();
+        batch.startBatch();
+        Random random = new Random(0);
+        for (int i = 0; i < steps; i++) {
+            String[] address = ADDRESSES[random.nextInt(ADDRESSES.length)].clone();
+            address[address.length - 1] += i;
+            batch.addStep(createOperation(OPERATIONS[random.nextInt(OPERATIONS.length)], createAddress(address)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() { batch.rollbackBatch(); }
+
+    @Benchmark
+    public ModelNode sort() { return batch.previewBatch(); }
+}
@@ -0,0 +1,53 @@
+package com.github.t1.deployer.container;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.jboss.as.controller.client.helpers.ClientConstants.*;
+import static org.jboss.as.controller.client.helpers.Operations.*;
+
+public class BatchTest {
+    private final Batch batch = new Batch();
+
+    private static ModelNode step(String operation, String... address) {
+        return createOperation(operation, createAddress(address));
+    }
+
+    @Test
+    public void shouldSortByOperationAndType() {
+        batch.startBatch();
+        batch.addStep(step("remove", "subsystem", "logging", "periodic-rotating-file-handler", "FOO"));
+        batch.addStep(step("remove", "subsystem", "logging", "logger", "foo"));
+        batch.addStep(step("write-attribute", "subsystem", "logging", "root-logger", "ROOT"));
+        batch.addStep(step("add", "deployment", "foo.war"));
+        batch.addStep(step("add", "subsystem", "logging", "logger", "bar"));
+        batch.addStep(step("add", "subsystem", "logging", "periodic-rotating-file-handler", "BAR"));
+
+        List<ModelNode> steps = batch.previewBatch().get(STEPS).asList();
+
+        assertThat(steps).extracting(step -> step.get(OP).asString() + " " + step.get(ADDRESS).asPropertyList()
+                .get(step.get(ADDRESS).asPropertyList().size() - 1).getValue().asString())
+                .containsExactly(
+                        "add BAR",
+                        "add bar",
+                        "add foo.war",
+                        "write-attribute ROOT",
+                        "remove foo",
+                        "remove FOO");
+    }
+
+    @Test
+    public void shouldRejectUnsupportedStepWhenAdded() {
+        batch.startBatch();
+
+        Throwable thrown = catchThrowable(() -> batch.addStep(step("reload", "subsystem", "undertow")));
+
+        assertThat(thrown)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("can't add unsupported step to batch");
+        assertThat(batch.previewBatch().get(STEPS).has(0)).isFalse();
+    }
+}
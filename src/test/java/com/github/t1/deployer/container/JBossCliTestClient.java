@@ -75,4 +75,8 @@ public class JBossCliTestClient {
         container.batch.client = cli;
         return container;
     }
+
+    public static void deploymentChunkSize(Container container, int size) {
+        container.batch.deploymentChunkSize = size;
+    }
 }
@@ -0,0 +1,200 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.container.ModelControllerClientPool.Connection;
+import com.github.t1.deployer.tools.Metrics;
+import org.jboss.as.controller.client.*;
+import org.jboss.dmr.ModelNode;
+import org.junit.*;
+
+import java.io.IOException;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ModelControllerClientPoolTest {
+    private static final Instant NOW = Instant.parse("2017-06-01T12:00:00Z");
+    private static final Duration KEEP_ALIVE = Duration.ofSeconds(30);
+
+    private final Clock clock = mock(Clock.class);
+    private final List<ModelControllerClient> connected = new ArrayList<>();
+    private final Deque<ModelControllerClient> clients = new ArrayDeque<>();
+
+    private Runnable onConnect = () -> {};
+
+    private final ModelControllerClientPool pool = new ModelControllerClientPool(() -> {
+        onConnect.run();
+        ModelControllerClient client = clients.pop();
+        connected.add(client);
+        return client;
+    }, KEEP_ALIVE, Duration.ZERO, clock);
+
+    private final Operation operation = Operation.Factory.create(new ModelNode());
+
+    private static ModelNode success() {
+        ModelNode result = new ModelNode();
+        result.get("outcome").set("success");
+        result.get("result").set("running");
+        return result;
+    }
+
+    private ModelControllerClient givenClient(boolean healthy) throws IOException {
+        ModelControllerClient client = mock(ModelControllerClient.class);
+        if (healthy)
+            when(client.execute(any(ModelNode.class))).thenReturn(success());
+        else
+            when(client.execute(any(ModelNode.class))).thenThrow(new IOException("connection closed"));
+        clients.add(client);
+        return client;
+    }
+
+    private ModelControllerClient acquire() {
+        Connection connection = pool.acquire();
+        pool.release(connection);
+        return connection.getClient();
+    }
+
+    private void givenBroken(ModelControllerClient client) throws IOException {
+        reset(client);
+        when(client.execute(any(ModelNode.class))).thenThrow(new IOException("reloading"));
+    }
+
+    @Before
+    public void setUp() { when(clock.instant()).thenReturn(NOW); }
+
+    @After
+    public void tearDown() { pool.close(); }
+
+    @Test
+    public void shouldConnectLazilyAndReuse() throws Exception {
+        ModelControllerClient client = givenClient(true);
+        assertThat(connected).isEmpty();
+
+        assertThat(acquire()).isSameAs(client);
+        assertThat(acquire()).isSameAs(client);
+
+        assertThat(pool.getConnects()).isEqualTo(1);
+        assertThat(pool.getReuses()).isEqualTo(1);
+        verify(client, times(1)).execute(any(ModelNode.class));
+    }
+
+    @Test
+    public void shouldProbeAfterKeepAlive() throws Exception {
+        ModelControllerClient client = givenClient(true);
+        acquire();
+        when(clock.instant()).thenReturn(NOW.plus(KEEP_ALIVE));
+
+        assertThat(acquire()).isSameAs(client);
+
+        verify(client, times(2)).execute(any(ModelNode.class));
+    }
+
+    @Test
+    public void shouldReconnectWithBackoffAfterFailedProbe() throws Exception {
+        ModelControllerClient old = givenClient(true);
+        acquire();
+        givenBroken(old);
+        givenClient(false);
+        ModelControllerClient fresh = givenClient(true);
+
+        pool.invalidate();
+
+        assertThat(acquire()).isSameAs(fresh);
+        assertThat(pool.getConnects()).isEqualTo(3);
+        assertThat(pool.getFailedProbes()).isEqualTo(2);
+        verify(old).close();
+    }
+
+    @Test
+    public void shouldFailAfterMaxAttempts() throws Exception {
+        for (int i = 0; i < ModelControllerClientPool.MAX_ATTEMPTS; i++)
+            givenClient(false);
+
+        Throwable thrown = catchThrowable(this::acquire);
+
+        assertThat(thrown).hasMessageContaining("can't connect to container");
+        assertThat(connected).hasSize(ModelControllerClientPool.MAX_ATTEMPTS);
+    }
+
+    @Test
+    public void shouldCloseReplacedConnectionOnlyWhenItsCallsAreDone() throws Exception {
+        ModelControllerClient old = givenClient(true);
+        ModelControllerClient fresh = givenClient(true);
+        Connection running = pool.acquire();
+        givenBroken(old);
+        pool.invalidate();
+
+        assertThat(acquire()).isSameAs(fresh);
+        verify(old, never()).close();
+
+        pool.release(running);
+        verify(old).close();
+    }
+
+    @Test
+    public void shouldCallNewConnectionWithSameClientAfterReconnect() throws Exception {
+        ModelControllerClient old = givenClient(true);
+        ModelControllerClient fresh = givenClient(true);
+        ModelControllerClient client = pool.getClient();
+        client.execute(operation);
+        givenBroken(old);
+        pool.invalidate();
+
+        client.execute(operation);
+
+        verify(fresh).execute(operation);
+        verify(old).close();
+    }
+
+    @Test
+    public void shouldProbeAfterFailedCall() throws Exception {
+        ModelControllerClient client = givenClient(true);
+        when(client.execute(operation)).thenThrow(new IOException("connection reset"));
+
+        Throwable thrown = catchThrowable(() -> pool.getClient().execute(operation));
+        acquire();
+
+        assertThat(thrown).isInstanceOf(IOException.class);
+        verify(client, times(2)).execute(any(ModelNode.class));
+    }
+
+    @Test
+    public void shouldNotHoldLockWhileReconnecting() throws Exception {
+        givenClient(true);
+        onConnect = () -> {
+            try {
+                CompletableFuture.runAsync(pool::invalidate).get(1, SECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        acquire();
+
+        assertThat(pool.getConnects()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldExportCountsAsMetrics() throws Exception {
+        givenClient(true);
+
+        acquire();
+        acquire();
+
+        assertThat(Metrics.toPrometheus())
+                .contains("deployer_container_connects_total 1\n")
+                .contains("deployer_container_connection_reuses_total 1\n")
+                .contains("deployer_container_failed_probes_total 0\n");
+    }
+
+    @Test
+    public void shouldRemoveMetricsOnClose() throws Exception {
+        pool.close();
+
+        assertThat(Metrics.toPrometheus()).doesNotContain("deployer_container_connects_total");
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.t1.deployer.model;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ChecksumTest {
+    private static final byte[] CONTENT = new byte[200_000];
+
+    static {
+        new Random(0).nextBytes(CONTENT);
+    }
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("content.war");
+        Files.write(file, CONTENT);
+        return file;
+    }
+
+    @Test
+    public void shouldStreamSha1OfFileBiggerThanBuffer() throws Exception {
+        assertThat(Checksum.sha1(file())).isEqualTo(Checksum.sha1(CONTENT));
+    }
+
+    @Test
+    public void shouldStreamMd5OfFile() throws Exception {
+        Checksum expected = Checksum.of(MessageDigest.getInstance("MD5").digest(CONTENT));
+
+        assertThat(Checksum.md5(file())).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldComputeChecksumWhileReading() throws Exception {
+        try (ChecksumInputStream inputStream = ChecksumInputStream.sha1(new ByteArrayInputStream(CONTENT))) {
+            byte[] buffer = new byte[4096];
+            while (inputStream.read(buffer) >= 0)
+                continue;
+
+            assertThat(inputStream.getChecksum()).isEqualTo(Checksum.sha1(CONTENT));
+        }
+    }
+
+    @Test
+    public void shouldComputeSameKindOfChecksum() throws Exception {
+        Path file = file();
+        Checksum md5 = Checksum.md5(file);
+        try (ChecksumInputStream inputStream = ChecksumInputStream.like(md5, Files.newInputStream(file))) {
+            while (inputStream.read() >= 0)
+                continue;
+
+            assertThat(inputStream.getChecksum()).isEqualTo(md5);
+        }
+    }
+
+    @Test
+    public void shouldPassVerifyingMatchingChecksum() throws Exception {
+        try (InputStream inputStream = ChecksumInputStream.verifying(Checksum.sha1(CONTENT),
+                new ByteArrayInputStream(CONTENT))) {
+            byte[] buffer = new byte[4096];
+            while (inputStream.read(buffer) >= 0)
+                continue;
+        }
+    }
+
+    @Test
+    public void shouldFailVerifyingTruncatedStream() throws Exception {
+        byte[] truncated = Arrays.copyOf(CONTENT, CONTENT.length / 2);
+        try (InputStream inputStream = ChecksumInputStream.verifying(Checksum.sha1(CONTENT),
+                new ByteArrayInputStream(truncated))) {
+            byte[] buffer = new byte[4096];
+
+            Throwable thrown = catchThrowable(() -> {
+                while (inputStream.read(buffer) >= 0)
+                    continue;
+            });
+
+            assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("checksum mismatch");
+        }
+    }
+
+    @Test
+    public void shouldNotProvideChecksumBeforeEndOfStream() throws Exception {
+        try (ChecksumInputStream inputStream = ChecksumInputStream.sha1(new ByteArrayInputStream(CONTENT))) {
+            inputStream.read(new byte[4096]);
+
+            Throwable thrown = catchThrowable(inputStream::getChecksum);
+
+            assertThat(thrown).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void shouldNotVerifyAlreadyVerifiedStreamAgain() throws Exception {
+        Checksum checksum = Checksum.sha1(CONTENT);
+        ChecksumInputStream verified = ChecksumInputStream.verified(checksum, new ByteArrayInputStream(CONTENT));
+
+        assertThat(ChecksumInputStream.verifying(checksum, verified)).isSameAs(verified);
+    }
+
+    @Test
+    public void shouldVerifyAlreadyVerifiedStreamAgainForOtherChecksum() throws Exception {
+        byte[] other = Arrays.copyOf(CONTENT, CONTENT.length / 2);
+        ChecksumInputStream verified = ChecksumInputStream.verified(Checksum.sha1(other),
+                new ByteArrayInputStream(other));
+        try (InputStream inputStream = ChecksumInputStream.verifying(Checksum.sha1(CONTENT), verified)) {
+            byte[] buffer = new byte[4096];
+
+            Throwable thrown = catchThrowable(() -> {
+                while (inputStream.read(buffer) >= 0)
+                    continue;
+            });
+
+            assertThat(thrown).isInstanceOf(IOException.class).hasMessageContaining("checksum mismatch");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.t1.deployer.model;
+
+import com.github.t1.deployer.model.Expressions.VariableName;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves one line of a plan with the different kinds of expressions: a <code>plain</code> variable, <code>nested</code>
+ * function calls, a chain of <code>or</code> alternatives where only the last one resolves, and a <code>switch</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExpressionsBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExpressionsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final Map<String, String> LINES = new HashMap<>();
+
+    static {
+        LINES.put("plain", "version: ${app-version}");
+        LINES.put("nested", "name: ${toUpperCase(regex(app-name, «(.*?)\\d*»))}");
+        LINES.put("or", "version: ${undefined-1 or undefined-2 or toLowerCase(undefined-3) or app-version}");
+        LINES.put("switch", "password: ${switch(stage) dev: «A» qa: «B» prod: «C» }");
+    }
+
+    @Param({ "plain", "nested", "or", "switch" })
+    public String kind;
+
+    private Expressions expressions;
+    private String line;
+
+    @Setup
+    public void setup() {
+        Map<VariableName, String> variables = new HashMap<>();
+        variables.put(new VariableName("app-version"), "1.2.3");
+        variables.put(new VariableName("app-name"), "my-app01");
+        variables.put(new VariableName("stage"), "qa");
+        expressions = new Expressions().withAllNew(variables);
+        line = LINES.get(kind);
+    }
+
+    @Benchmark
+    public String resolve() { return expressions.resolve(line); }
+}
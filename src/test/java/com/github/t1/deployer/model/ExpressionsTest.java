@@ -0,0 +1,22 @@
+package com.github.t1.deployer.model;
+
+import com.github.t1.deployer.model.Expressions.VariableName;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ExpressionsTest {
+    @Test
+    public void shouldNotCacheVariableValues() {
+        Expressions expressions = new Expressions()
+                .with(new VariableName("password"), "secret-password-value")
+                .with(new VariableName("user"), "${password}-user");
+
+        String resolved = expressions.resolve("credentials: ${user}");
+
+        assertThat(resolved).isEqualTo("credentials: secret-password-value-user");
+        assertThat(Expressions.isCached("credentials: ${user}")).isTrue();
+        assertThat(Expressions.isCached("secret-password-value")).isFalse();
+        assertThat(Expressions.isCached("${password}-user")).isFalse();
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.t1.deployer.model;
+
+import com.github.t1.deployer.model.Expressions.VariableName;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.*;
+
+/**
+ * Loads a plan with <code>size</code> deployables, loggers, and log-handlers each, with variables in most of the
+ * values, like a big root bundle that configures all applications of one host.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlanLoadBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlanLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private Expressions expressions;
+    private String plan;
+
+    @Setup
+    public void setup() {
+        expressions = new Expressions().withAllNew(singletonMap(new VariableName("default.group-id"), "org.foo"));
+        StringBuilder out = new StringBuilder();
+        out.append("log-handlers:\n");
+        for (int i = 0; i < size; i++)
+            out.append("  HANDLER").append(i).append(":\n")
+               .append("    level: ${handler.level or «INFO»}\n")
+               .append("    type: periodic-rotating-file\n")
+               .append("    file: handler").append(i).append(".log\n");
+        out.append("loggers:\n");
+        for (int i = 0; i < size; i++)
+            out.append("  org.foo.app").append(i).append(":\n")
+               .append("    level: ${toUpperCase(logger.level or «debug»)}\n")
+               .append("    handler: HANDLER").append(i).append("\n");
+        out.append("deployables:\n");
+        for (int i = 0; i < size; i++)
+            out.append("  app").append(i).append(":\n")
+               .append("    group-id: ${default.group-id}\n")
+               .append("    version: ${app").append(i).append(".version or «1.").append(i).append("»}\n");
+        plan = out.toString();
+    }
+
+    @Benchmark
+    public Plan load() { return Plan.load(expressions, new StringReader(plan), "benchmark"); }
+}
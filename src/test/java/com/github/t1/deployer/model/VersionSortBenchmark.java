@@ -0,0 +1,98 @@
+package com.github.t1.deployer.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * Sorts 10k version strings of the shapes found on Maven Central, like a big <code>listVersions</code> result.
+ * The <code>regex</code> benchmark is the comparator as it was before the versions were parsed into keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VersionSortBenchmark {
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VersionSortBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final String[] QUALIFIERS = { "", "-SNAPSHOT", ".Final", "-RC1", "-beta-2", ".M3", "-jre" };
+
+    private List<String> strings;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        strings = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String version = random.nextInt(5) + "." + random.nextInt(30);
+            if (random.nextBoolean())
+                version += "." + random.nextInt(100);
+            if (random.nextInt(20) == 0)
+                version = "2017" + String.format("%04d", random.nextInt(1232)) + "." + random.nextInt(3000);
+            strings.add(version + QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+        }
+    }
+
+    @Benchmark
+    public List<Version> parsed() {
+        return strings.stream().map(Version::new).sorted().collect(toList());
+    }
+
+    @Benchmark
+    public List<Version> regex() {
+        return strings.stream().map(Version::new).sorted(REGEX_COMPARATOR).collect(toList());
+    }
+
+    private static final Comparator<Version> REGEX_COMPARATOR = new Comparator<Version>() {
+        @Override
+        public int compare(Version thisVersion, Version thatVersion) {
+            String[] thisParts = split(thisVersion.getValue());
+            String[] thatParts = split(thatVersion.getValue());
+            int i;
+            for (i = 0; i < thisParts.length; i++) {
+                String thisPart = thisParts[i];
+                if (thatParts.length < i + 1)
+                    return compareTrailing(thisPart);
+                String thatPart = thatParts[i];
+
+                if (thisPart.equals(thatPart))
+                    continue;
+
+                if (isNumeric(thisPart)) {
+                    if (isNumeric(thatPart)) {
+                        Integer thisInt = Integer.valueOf(thisPart);
+                        Integer thatInt = Integer.valueOf(thatPart);
+                        int c = thisInt.compareTo(thatInt);
+                        if (c == 0)
+                            continue;
+                        return c;
+                    }
+                    return 1;
+                }
+                if (isNumeric(thatPart))
+                    return -1;
+                return thisPart.compareToIgnoreCase(thatPart);
+            }
+            if (thatParts.length > i)
+                return -compareTrailing(thatParts[i]);
+            return 0;
+        }
+
+        private String[] split(String thisVersion) { return thisVersion.split("[.-]"); }
+
+        private int compareTrailing(String part) { return isNumeric(part) ? 1 : -1; }
+
+        private boolean isNumeric(String string) { return string.matches("\\d+"); }
+    };
+}
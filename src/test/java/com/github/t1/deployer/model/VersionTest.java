@@ -0,0 +1,43 @@
+package com.github.t1.deployer.model;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class VersionTest {
+    private static List<String> sorted(String... versions) {
+        return Stream.of(versions).map(Version::new).sorted().map(Version::getValue).collect(toList());
+    }
+
+    @Test
+    public void shouldCompareNumbersNumerically() {
+        assertThat(sorted("1.10", "1.9", "1.2.3", "01.9.0"))
+                .containsExactly("1.2.3", "1.9", "01.9.0", "1.10");
+    }
+
+    @Test
+    public void shouldSortTrailingStringsBeforeAndTrailingNumbersAfter() {
+        assertThat(sorted("1.0.1", "1.0", "1.0-SNAPSHOT", "1.0.RC1", "1.0.Final"))
+                .containsExactly("1.0.Final", "1.0.RC1", "1.0-SNAPSHOT", "1.0", "1.0.1");
+    }
+
+    @Test
+    public void shouldCompareNumbersBiggerThanLong() {
+        assertThat(sorted("1.99999999999999999999", "1.100000000000000000000", "1.20170601120000"))
+                .containsExactly("1.20170601120000", "1.99999999999999999999", "1.100000000000000000000");
+    }
+
+    @Test
+    public void shouldBeEqualIndependentOfParsedKey() {
+        Version version = new Version("1.2.3");
+        Version other = new Version("1.2.3");
+
+        assertThat(version.compareTo(new Version("1.2"))).isPositive();
+
+        assertThat(version).isEqualTo(other).hasSameHashCodeAs(other);
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import com.github.t1.problem.WebApplicationApplicationException;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.t1.deployer.model.ArtifactType.*;
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class ArtifactStoreTest {
+    private static final byte[] CONTENT = "jolokia-content".getBytes(UTF_8);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private Path dir() { return folder.getRoot().toPath().resolve("artifacts"); }
+
+    private Artifact artifact(String version, byte[] content, Checksum checksum) {
+        return Artifact.builder()
+                       .groupId(new GroupId("org.jolokia"))
+                       .artifactId(new ArtifactId("jolokia-war"))
+                       .version(new Version(version))
+                       .type(war)
+                       .checksum(checksum)
+                       .inputStreamSupplier(() -> {
+                           downloads.incrementAndGet();
+                           return new ByteArrayInputStream(content);
+                       })
+                       .build();
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8))) {
+            return reader.readLine();
+        }
+    }
+
+    @Test
+    public void shouldDownloadOnlyOnce() throws Exception {
+        ArtifactStore store = new ArtifactStore(dir(), 1024);
+        Artifact artifact = artifact("1.3.3", CONTENT, Checksum.sha1(CONTENT));
+
+        assertThat(read(store.open(artifact))).isEqualTo("jolokia-content");
+        assertThat(read(store.open(artifact))).isEqualTo("jolokia-content");
+
+        assertThat(downloads.get()).isEqualTo(1);
+        assertThat(dir().resolve(Checksum.sha1(CONTENT).toString())).exists();
+    }
+
+    @Test
+    public void shouldOpenStoredArtifactAsAlreadyVerified() throws Exception {
+        ArtifactStore store = new ArtifactStore(dir(), 1024);
+        Checksum checksum = Checksum.sha1(CONTENT);
+
+        try (InputStream inputStream = store.open(artifact("1.3.3", CONTENT, checksum))) {
+            assertThat(ChecksumInputStream.verifying(checksum, inputStream)).isSameAs(inputStream);
+        }
+    }
+
+    @Test
+    public void shouldRejectChecksumMismatch() {
+        ArtifactStore store = new ArtifactStore(dir(), 1024);
+        Artifact artifact = artifact("1.3.3", CONTENT, Checksum.fromString("f6e5786754116cc8e1e9261b2a117701747b1259"));
+
+        Throwable thrown = catchThrowable(() -> store.open(artifact));
+
+        assertThat(thrown).isInstanceOf(WebApplicationApplicationException.class)
+                          .hasMessageContaining("checksum mismatch");
+        assertThat(dir().toFile().list()).isEmpty();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        byte[] other = "other-content!!".getBytes(UTF_8);
+        ArtifactStore store = new ArtifactStore(dir(), CONTENT.length + 1);
+        store.open(artifact("1.3.3", CONTENT, Checksum.sha1(CONTENT))).close();
+
+        store.open(artifact("1.3.4", other, Checksum.sha1(other))).close();
+
+        assertThat(dir().resolve(Checksum.sha1(CONTENT).toString())).doesNotExist();
+        assertThat(dir().resolve(Checksum.sha1(other).toString())).exists();
+    }
+}
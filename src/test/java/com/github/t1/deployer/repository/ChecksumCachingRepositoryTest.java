@@ -0,0 +1,97 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.*;
+
+import static com.github.t1.deployer.model.ArtifactType.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ChecksumCachingRepositoryTest {
+    private static final Checksum CHECKSUM = Checksum.fromString("f6e5786754116cc8e1e9261b2a117701747b1259");
+    private static final Instant NOW = Instant.parse("2017-06-01T12:00:00Z");
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Repository delegate = mock(Repository.class);
+    private final Clock clock = mock(Clock.class);
+
+    private Path file() { return folder.getRoot().toPath().resolve("deployer.checksum.cache"); }
+
+    private Repository repository() {
+        return new ChecksumCachingRepository(delegate, new ChecksumCache(file(), 10, Age.ofMinutes(1), clock));
+    }
+
+    private static Artifact jolokia() {
+        return Artifact.builder()
+                       .groupId(new GroupId("org.jolokia"))
+                       .artifactId(new ArtifactId("jolokia-war"))
+                       .version(new Version("1.3.3"))
+                       .type(war)
+                       .checksum(CHECKSUM)
+                       .inputStreamSupplier(() -> null)
+                       .build();
+    }
+
+    private static void assertJolokia(Artifact artifact) {
+        assertThat(artifact.getGroupId()).hasToString("org.jolokia");
+        assertThat(artifact.getArtifactId()).hasToString("jolokia-war");
+        assertThat(artifact.getVersion()).hasToString("1.3.3");
+        assertThat(artifact.getType()).isEqualTo(war);
+        assertThat(artifact.getChecksum()).isEqualTo(CHECKSUM);
+    }
+
+    @Before
+    public void setUp() { when(clock.instant()).thenReturn(NOW); }
+
+    @Test
+    public void shouldSearchDelegateOnlyOnce() {
+        when(delegate.searchByChecksum(CHECKSUM)).then(i -> jolokia());
+        Repository repository = repository();
+
+        assertJolokia(repository.lookupByChecksum(CHECKSUM));
+        assertJolokia(repository.lookupByChecksum(CHECKSUM));
+
+        verify(delegate, times(1)).searchByChecksum(CHECKSUM);
+    }
+
+    @Test
+    public void shouldReloadKnownChecksumsFromFile() {
+        when(delegate.searchByChecksum(CHECKSUM)).then(i -> jolokia());
+        repository().lookupByChecksum(CHECKSUM);
+
+        Artifact artifact = repository().lookupByChecksum(CHECKSUM);
+
+        assertJolokia(artifact);
+        verify(delegate, times(1)).searchByChecksum(CHECKSUM);
+    }
+
+    @Test
+    public void shouldRememberUnknownChecksumUntilExpired() {
+        when(delegate.searchByChecksum(CHECKSUM)).thenThrow(new UnknownChecksumException(CHECKSUM));
+        Repository repository = repository();
+
+        assertThat(repository.lookupByChecksum(CHECKSUM).getError()).isEqualTo("unknown");
+        assertThat(repository.lookupByChecksum(CHECKSUM).getError()).isEqualTo("unknown");
+        verify(delegate, times(1)).searchByChecksum(CHECKSUM);
+
+        when(clock.instant()).thenReturn(NOW.plusSeconds(61));
+        assertThat(repository.lookupByChecksum(CHECKSUM).getError()).isEqualTo("unknown");
+        verify(delegate, times(2)).searchByChecksum(CHECKSUM);
+    }
+
+    @Test
+    public void shouldNotCacheErrors() {
+        when(delegate.searchByChecksum(CHECKSUM)).thenThrow(new RuntimeException("network down"));
+        Repository repository = repository();
+
+        assertThat(repository.lookupByChecksum(CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+        assertThat(repository.lookupByChecksum(CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+
+        verify(delegate, times(2)).searchByChecksum(CHECKSUM);
+    }
+}
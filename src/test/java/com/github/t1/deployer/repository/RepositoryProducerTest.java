@@ -4,6 +4,9 @@ import com.github.t1.rest.RestClientMocker;
 import org.junit.Test;
 
 import java.net.*;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.github.t1.deployer.repository.RepositoryProducer.*;
 import static com.github.t1.rest.RestContext.*;
@@ -59,4 +62,20 @@ public class RepositoryProducerTest {
 
         assertThat(repository).isInstanceOf(ArtifactoryRepository.class);
     }
+
+    @Test
+    public void shouldCreateOnlyOneArtifactStore() throws Throwable {
+        RepositoryCaches caches = new RepositoryCaches();
+        AtomicInteger created = new AtomicInteger();
+        Supplier<ArtifactStore> create = () -> {
+            created.incrementAndGet();
+            return new ArtifactStore(Paths.get("target/artifacts"), 1024);
+        };
+
+        ArtifactStore first = caches.artifactStore(create);
+        ArtifactStore second = caches.artifactStore(create);
+
+        assertThat(second).isSameAs(first);
+        assertThat(created.get()).isEqualTo(1);
+    }
 }
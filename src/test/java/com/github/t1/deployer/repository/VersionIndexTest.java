@@ -0,0 +1,141 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.*;
+import org.junit.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+import static com.github.t1.deployer.model.ArtifactType.*;
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class VersionIndexTest {
+    private static final GroupId GROUP_ID = new GroupId("org.jolokia");
+    private static final ArtifactId ARTIFACT_ID = new ArtifactId("jolokia-war");
+    private static final Instant NOW = Instant.parse("2017-06-01T12:00:00Z");
+
+    private final Repository delegate = mock(Repository.class);
+    private final Clock clock = mock(Clock.class);
+
+    private Repository repository(VersionIndex index) {
+        Repository repository = new ChecksumCachingRepository(delegate, mock(ChecksumCache.class));
+        repository.setVersionIndex(index);
+        return repository;
+    }
+
+    private static List<Version> versions(String... versions) {
+        List<Version> list = new ArrayList<>();
+        stream(versions).map(Version::new).forEach(list::add);
+        return list;
+    }
+
+    private static Version resolve(Repository repository, String version) {
+        return repository.resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version(version), war, null).getVersion();
+    }
+
+    @Before
+    public void setUp() {
+        when(clock.instant()).thenReturn(NOW);
+        when(delegate.listVersions(GROUP_ID, ARTIFACT_ID, false)).then(i -> versions("1.2.3", "1.10.0", "1.9"));
+        when(delegate.listVersions(GROUP_ID, ARTIFACT_ID, true)).then(i -> versions("1.10.1-SNAPSHOT"));
+        when(delegate.lookupArtifact(eq(GROUP_ID), eq(ARTIFACT_ID), any(Version.class), eq(war), isNull()))
+                .then(i -> Artifact.builder()
+                                   .groupId(GROUP_ID)
+                                   .artifactId(ARTIFACT_ID)
+                                   .version(i.getArgument(2))
+                                   .type(war)
+                                   .inputStreamSupplier(() -> null)
+                                   .build());
+    }
+
+    @Test
+    public void shouldListVersionsOnlyOncePerApply() {
+        VersionIndex index = new VersionIndex(null, clock);
+        Repository repository = repository(index);
+
+        try (VersionIndex.Apply apply = index.startApply()) {
+            assertThat(resolve(repository, "LATEST")).hasToString("1.10.0");
+            assertThat(resolve(repository, "LATEST")).hasToString("1.10.0");
+            assertThat(resolve(repository, "UNSTABLE")).hasToString("1.10.1-SNAPSHOT");
+        }
+
+        verify(delegate, times(1)).listVersions(GROUP_ID, ARTIFACT_ID, false);
+        verify(delegate, times(1)).listVersions(GROUP_ID, ARTIFACT_ID, true);
+    }
+
+    @Test
+    public void shouldForgetVersionsAfterApply() {
+        VersionIndex index = new VersionIndex(null, clock);
+        Repository repository = repository(index);
+
+        try (VersionIndex.Apply apply = index.startApply()) {
+            resolve(repository, "LATEST");
+        }
+        resolve(repository, "LATEST");
+        resolve(repository, "LATEST");
+
+        verify(delegate, times(3)).listVersions(GROUP_ID, ARTIFACT_ID, false);
+    }
+
+    @Test
+    public void shouldNotShareVersionsOfOneApplyWithOtherThreads() throws Exception {
+        VersionIndex index = new VersionIndex(null, clock);
+        Repository repository = repository(index);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (VersionIndex.Apply apply = index.startApply()) {
+            resolve(repository, "LATEST");
+            executor.submit(() -> resolve(repository, "LATEST")).get();
+            executor.submit(() -> resolve(repository, "LATEST")).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(delegate, times(3)).listVersions(GROUP_ID, ARTIFACT_ID, false);
+    }
+
+    @Test
+    public void shouldShareVersionsOfOneApplyWithPropagatedThreads() throws Exception {
+        VersionIndex index = new VersionIndex(null, clock);
+        Repository repository = repository(index);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (VersionIndex.Apply apply = index.startApply()) {
+            Function<String, Version> resolve = index.propagate(version -> resolve(repository, version));
+            resolve(repository, "LATEST");
+            assertThat(executor.submit(() -> resolve.apply("LATEST")).get()).hasToString("1.10.0");
+            assertThat(executor.submit(() -> resolve.apply("LATEST")).get()).hasToString("1.10.0");
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(delegate, times(1)).listVersions(GROUP_ID, ARTIFACT_ID, false);
+    }
+
+    @Test
+    public void shouldRememberVersionsAcrossAppliesUntilTtlExpires() {
+        Repository repository = repository(new VersionIndex(Age.ofMinutes(1), clock));
+
+        resolve(repository, "LATEST");
+        resolve(repository, "LATEST");
+        when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+        resolve(repository, "LATEST");
+
+        verify(delegate, times(2)).listVersions(GROUP_ID, ARTIFACT_ID, false);
+    }
+
+    @Test
+    public void shouldFailToResolveWithoutVersions() {
+        when(delegate.listVersions(GROUP_ID, ARTIFACT_ID, false)).then(i -> versions());
+        Repository repository = repository(new VersionIndex(null, clock));
+
+        Throwable thrown = catchThrowable(() -> resolve(repository, "LATEST"));
+
+        assertThat(thrown).hasMessageContaining("no versions found for org.jolokia:jolokia-war");
+    }
+}
@@ -8,7 +8,7 @@ import com.github.t1.rest.*;
 import com.github.t1.testtools.FileMemento;
 import org.junit.*;
 
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.*;
 import java.util.List;
 
@@ -94,7 +94,7 @@ public class TestClient {
 
     @Test
     public void shouldGetEffectivePlan() throws Exception {
-        Plan plan = Plan.with(new Expressions(), "test", () -> deployer().GET(Plan.class));
+        Plan plan = Plan.load(new Expressions(), new StringReader(deployer().GET(String.class)), "test");
 
         System.out.println("------------------\n" + plan + "------------------");
     }
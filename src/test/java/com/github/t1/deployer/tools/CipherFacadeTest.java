@@ -0,0 +1,119 @@
+package com.github.t1.deployer.tools;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import javax.crypto.*;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.KeyStore.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class CipherFacadeTest {
+    private static final String PLAIN_TEXT = "foo";
+    private static final char[] PASS = "changeit".toCharArray();
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CipherFacade cipher = new CipherFacade();
+
+    private Path keyStore;
+
+    @Before
+    public void setUp() throws Exception { keyStore = folder.getRoot().toPath().resolve("test.keystore"); }
+
+    private KeyStoreConfig config(String alias) {
+        return KeyStoreConfig.builder().path(keyStore.toString()).type("jceks").pass("changeit").alias(alias).build();
+    }
+
+    private static SecretKey newKey() throws Exception { return KeyGenerator.getInstance("AES").generateKey(); }
+
+    private void writeKeyStore(String alias, SecretKey key, String otherAlias, SecretKey otherKey) throws Exception {
+        KeyStore store = KeyStore.getInstance("jceks");
+        store.load(null, PASS);
+        store.setEntry(alias, new SecretKeyEntry(key), new PasswordProtection(PASS));
+        if (otherAlias != null)
+            store.setEntry(otherAlias, new SecretKeyEntry(otherKey), new PasswordProtection(PASS));
+        try (OutputStream out = Files.newOutputStream(keyStore)) {
+            store.store(out, PASS);
+        }
+    }
+
+    private void writeKeyStore(String alias, SecretKey key) throws Exception { writeKeyStore(alias, key, null, null); }
+
+    private void setLastModified(FileTime time) throws Exception { Files.setLastModifiedTime(keyStore, time); }
+
+    @Test
+    public void shouldReloadKeyStoreWhenModified() throws Exception {
+        SecretKey oldKey = newKey();
+        SecretKey newKey = newKey();
+        writeKeyStore("secretkey", oldKey);
+        FileTime lastModified = Files.getLastModifiedTime(keyStore);
+        String before = cipher.encrypt(PLAIN_TEXT, config("secretkey"));
+
+        writeKeyStore("secretkey", newKey);
+        setLastModified(FileTime.fromMillis(lastModified.toMillis() + 10_000));
+        String after = cipher.encrypt(PLAIN_TEXT, config("secretkey"));
+
+        assertThat(before).isEqualTo(cipher.encrypt(PLAIN_TEXT, oldKey));
+        assertThat(after).isEqualTo(cipher.encrypt(PLAIN_TEXT, newKey));
+    }
+
+    @Test
+    public void shouldNotReloadKeyStoreWhenNotModified() throws Exception {
+        SecretKey oldKey = newKey();
+        writeKeyStore("secretkey", oldKey);
+        FileTime lastModified = Files.getLastModifiedTime(keyStore);
+        cipher.encrypt(PLAIN_TEXT, config("secretkey"));
+
+        writeKeyStore("secretkey", newKey());
+        setLastModified(lastModified);
+        String cached = cipher.encrypt(PLAIN_TEXT, config("secretkey"));
+
+        assertThat(cached).isEqualTo(cipher.encrypt(PLAIN_TEXT, oldKey));
+    }
+
+    @Test
+    public void shouldCacheKeysByAlias() throws Exception {
+        SecretKey foo = newKey();
+        SecretKey bar = newKey();
+        writeKeyStore("foo", foo, "bar", bar);
+
+        String fooText = cipher.encrypt(PLAIN_TEXT, config("foo"));
+        String barText = cipher.encrypt(PLAIN_TEXT, config("bar"));
+
+        assertThat(fooText).isEqualTo(cipher.encrypt(PLAIN_TEXT, foo));
+        assertThat(barText).isEqualTo(cipher.encrypt(PLAIN_TEXT, bar));
+    }
+
+    @Test
+    public void shouldNotTakeCachedKeyWithWrongPass() throws Exception {
+        SecretKey key = newKey();
+        writeKeyStore("secretkey", key);
+        cipher.encrypt(PLAIN_TEXT, config("secretkey"));
+
+        Throwable thrown = catchThrowable(() -> cipher.encrypt(PLAIN_TEXT, config("secretkey").withPass("wrong")));
+
+        assertThat(thrown).isNotNull();
+        assertThat(cipher.encrypt(PLAIN_TEXT, config("secretkey"))).isEqualTo(cipher.encrypt(PLAIN_TEXT, key));
+    }
+
+    @Test
+    public void shouldCacheKeysForEncryptionAndDecryptionSeparately() {
+        KeyStoreConfig config = KeyStoreConfig
+                .builder()
+                .path("src/test/resources/test.keystore")
+                .type("jceks")
+                .pass("changeit")
+                .alias("keypair")
+                .build();
+
+        String encrypted = cipher.encrypt(PLAIN_TEXT, config);
+        String decrypted = cipher.decrypt(encrypted, config);
+
+        assertThat(decrypted).isEqualTo(PLAIN_TEXT);
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.t1.deployer.tools;
+
+import com.github.t1.deployer.tools.Metrics.Histogram;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MetricsTest {
+    @Test
+    public void shouldRecordExactSmallValues() {
+        Histogram histogram = Metrics.histogram("test-small");
+
+        histogram.record(3);
+        histogram.record(5);
+
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.percentile(0.5)).isEqualTo(4);
+        assertThat(histogram.percentile(0.99)).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldComputePercentilesWithinBucketPrecision() {
+        Histogram histogram = Metrics.histogram("test-percentiles");
+
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 1000);
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.percentile(0.5)).isBetween(500_000L, 500_000L * 9 / 8);
+        assertThat(histogram.percentile(0.95)).isBetween(950_000L, 950_000L * 9 / 8);
+        assertThat(histogram.percentile(0.99)).isBetween(990_000L, 1_000_000L);
+        assertThat(histogram.getMaxMillis()).isEqualTo(1000.0);
+    }
+
+    @Test
+    public void shouldTimePhase() {
+        try (Metrics.Timing timing = Metrics.time("test-timing")) {
+            assertThat(timing).isNotNull();
+        }
+
+        assertThat(Metrics.histogram("test-timing").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRegisterMXBean() throws Exception {
+        Metrics.histogram("test-jmx").record(2_000);
+
+        Object count = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("com.github.t1.deployer:type=Metrics,phase=test-jmx"), "Count");
+
+        assertThat(count).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldUnregisterAllMXBeans() throws Exception {
+        Metrics.histogram("test-remove-all").record(2_000);
+        Metrics.gauge("test_remove_all", "test gauge", () -> 1);
+
+        Metrics.removeAll();
+
+        assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName("com.github.t1.deployer:type=Metrics,*"), null)).isEmpty();
+        assertThat(Metrics.toPrometheus()).doesNotContain("test-remove-all").doesNotContain("test_remove_all");
+    }
+
+    @Test
+    public void shouldWritePrometheusFormat() {
+        Metrics.histogram("test-prometheus").record(1_500_000);
+
+        String text = Metrics.toPrometheus();
+
+        assertThat(text)
+                .contains("# TYPE deployer_phase_seconds summary\n")
+                .contains("deployer_phase_seconds{phase=\"test-prometheus\",quantile=\"0.5\"} 1.500000\n")
+                .contains("deployer_phase_seconds_sum{phase=\"test-prometheus\"} 1.500000\n")
+                .contains("deployer_phase_seconds_count{phase=\"test-prometheus\"} 1\n")
+                .contains("deployer_phase_max_seconds{phase=\"test-prometheus\"} 1.500000\n");
+    }
+
+    @Test
+    public void shouldExportGauge() throws Exception {
+        AtomicLong value = new AtomicLong(3);
+        Metrics.gauge("test_gauge", "a test gauge", value::get);
+        value.set(5);
+
+        Object jmx = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("com.github.t1.deployer:type=Metrics,gauge=test_gauge"), "Value");
+
+        assertThat(jmx).isEqualTo(5L);
+        assertThat(Metrics.toPrometheus())
+                .contains("# HELP deployer_test_gauge a test gauge\n")
+                .contains("# TYPE deployer_test_gauge gauge\n")
+                .contains("deployer_test_gauge 5\n");
+    }
+
+    @Test
+    public void shouldReplaceGaugeWithSameName() {
+        Metrics.counter("test_replaced_total", "a test counter", () -> 1);
+        Metrics.counter("test_replaced_total", "a test counter", () -> 2);
+
+        assertThat(Metrics.toPrometheus())
+                .contains("# TYPE deployer_test_replaced_total counter\n")
+                .contains("deployer_test_replaced_total 2\n")
+                .doesNotContain("deployer_test_replaced_total 1\n");
+    }
+
+    @Test
+    public void shouldRemoveGauge() {
+        Metrics.gauge("test_removed", "a removed gauge", () -> 1);
+
+        Metrics.remove("test_removed");
+
+        assertThat(Metrics.toPrometheus()).doesNotContain("test_removed");
+        assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(null, null))
+                .extracting(ObjectName::getCanonicalName)
+                .noneMatch(name -> name.contains("test_removed"));
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.t1.deployer.tools;
+
+import org.junit.Test;
+
+import java.io.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class TimedInputStreamTest {
+    private static final byte[] CONTENT = "some-content".getBytes(UTF_8);
+
+    @Test
+    public void shouldRecordBytesAtEndOfStream() throws Exception {
+        Trace.Span root;
+        try (Trace.Span span = Trace.start("root")) {
+            root = span;
+            InputStream inputStream = new TimedInputStream(new ByteArrayInputStream(CONTENT),
+                    Metrics.time("test-timed-stream"));
+            byte[] buffer = new byte[5];
+            while (inputStream.read(buffer) >= 0)
+                continue;
+            inputStream.close();
+        }
+
+        assertThat(Metrics.histogram("test-timed-stream").getCount()).isEqualTo(1);
+        assertThat(root.getChildren().get(0).getAttributes()).containsEntry("bytes", "12");
+        assertThat(root.getChildren().get(0).getDurationMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void shouldRecordBytesReadWhenClosedEarly() throws Exception {
+        Trace.Span root;
+        try (Trace.Span span = Trace.start("root")) {
+            root = span;
+            InputStream inputStream = new TimedInputStream(new ByteArrayInputStream(CONTENT),
+                    Metrics.time("test-timed-stream-closed"));
+            assertThat(inputStream.read()).isGreaterThanOrEqualTo(0);
+            inputStream.close();
+            inputStream.close();
+        }
+
+        assertThat(Metrics.histogram("test-timed-stream-closed").getCount()).isEqualTo(1);
+        assertThat(root.getChildren().get(0).getAttributes()).containsEntry("bytes", "1");
+    }
+}
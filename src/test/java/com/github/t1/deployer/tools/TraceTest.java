@@ -0,0 +1,118 @@
+package com.github.t1.deployer.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class TraceTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void shutdown() { executor.shutdownNow(); }
+
+    @Test
+    public void shouldIgnoreSpansWithoutTrace() {
+        try (Trace.Span span = Trace.span("foo")) {
+            span.attribute("key", "value");
+
+            assertThat(span).isSameAs(Trace.NONE);
+        }
+        assertThat(Trace.NONE.getAttributes()).isEmpty();
+        assertThat(Trace.NONE.getChildren()).isEmpty();
+    }
+
+    @Test
+    public void shouldBuildSpanTree() {
+        Trace.Span root;
+        try (Trace.Span span = Trace.start("root")) {
+            root = span;
+            try (Trace.Span a = Trace.span("a")) {
+                a.attribute("key", "value");
+                try (Trace.Span ignored = Trace.span("a1")) {
+                    Trace.attribute("bytes", 123);
+                }
+            }
+            try (Metrics.Timing ignored = Metrics.time("trace-test").attribute("source", "plan")) {
+                assertThat(ignored).isNotNull();
+            }
+        }
+
+        assertThat(root.getName()).isEqualTo("root");
+        assertThat(root.getDurationMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(root.getChildren()).extracting(Trace.Span::getName).containsExactly("a", "trace-test");
+        Trace.Span a = root.getChildren().get(0);
+        assertThat(a.getAttributes()).containsEntry("key", "value");
+        assertThat(a.getChildren()).hasSize(1);
+        assertThat(a.getChildren().get(0).getAttributes()).containsEntry("bytes", "123");
+        assertThat(root.getChildren().get(1).getAttributes()).containsEntry("source", "plan");
+        assertThat(Trace.span("after")).isSameAs(Trace.NONE);
+    }
+
+    @Test
+    public void shouldPropagateTraceToParallelThreads() {
+        Trace.Span root;
+        try (Trace.Span span = Trace.start("root")) {
+            root = span;
+            List<String> results = new Parallel(executor).map(asList("x", "y", "z"), name -> {
+                try (Trace.Span ignored = Trace.span(name)) {
+                    return name.toUpperCase();
+                }
+            });
+
+            assertThat(results).containsExactly("X", "Y", "Z");
+        }
+
+        assertThat(root.getChildren()).extracting(Trace.Span::getName).containsOnly("x", "y", "z");
+    }
+
+    @Test
+    public void shouldPropagateTraceToSupplierCalledLaterInOtherThread() throws Exception {
+        Trace.Span root;
+        Supplier<String> supplier;
+        try (Trace.Span span = Trace.start("root")) {
+            root = span;
+            try (Trace.Span ignored = Trace.span("deploy")) {
+                supplier = Trace.propagate(() -> {
+                    try (Trace.Span download = Trace.span("download")) {
+                        download.attribute("uri", "http://example.org");
+                        return "content";
+                    }
+                });
+            }
+            try (Trace.Span ignored = Trace.span("commit")) {
+                assertThat(executor.submit(supplier::get).get()).isEqualTo("content");
+            }
+        }
+
+        assertThat(root.getChildren()).extracting(Trace.Span::getName).containsExactly("deploy", "commit");
+        Trace.Span download = root.getChildren().get(0).getChildren().get(0);
+        assertThat(download.getName()).isEqualTo("download");
+        assertThat(download.getAttributes()).containsEntry("uri", "http://example.org");
+        assertThat(root.getChildren().get(1).getChildren()).isEmpty();
+    }
+
+    @Test
+    public void shouldSerializeSpans() throws Exception {
+        Trace.Span root;
+        try (Trace.Span span = Trace.start("root")) {
+            root = span;
+            try (Trace.Span child = Trace.span("child")) {
+                child.attribute("uri", "http://example.org");
+            }
+        }
+
+        String json = new ObjectMapper().writeValueAsString(root);
+
+        assertThat(json)
+                .startsWith("{\"name\":\"root\",\"start-ms\":0.0,\"duration-ms\":")
+                .contains("\"children\":[{\"name\":\"child\",\"start-ms\":")
+                .contains("\"attributes\":{\"uri\":\"http://example.org\"}")
+                .doesNotContain("parent");
+    }
+}